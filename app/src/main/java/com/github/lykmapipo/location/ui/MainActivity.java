@@ -13,6 +13,7 @@ import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
 
 import com.github.lykmapipo.location.LocationProvider;
+import com.github.lykmapipo.location.LocationSubscription;
 import com.github.lykmapipo.location.sample.R;
 import com.google.android.gms.location.LocationResult;
 
@@ -26,6 +27,7 @@ public class MainActivity extends AppCompatActivity {
     private TextView tvLatitude;
     private TextView tvAddress;
     private Location lastKnownLocation;
+    private LocationSubscription locationSubscription;
 
     @SuppressLint("MissingPermission")
     @Override
@@ -77,40 +79,42 @@ public class MainActivity extends AppCompatActivity {
 
         // request location updates
         Button btnRequestLocationUpdates = findViewById(R.id.btnRequestLocationUpdates);
-        btnRequestLocationUpdates.setOnClickListener(v -> LocationProvider.requestLocationUpdates(this, new LocationProvider.OnLocationUpdatesListener() {
-            @Override
-            public void onSuccess(LocationResult result) {
-                // obtain latest location
-                Location location = result.getLastLocation();
-
-                Toast.makeText(MainActivity.this, "Location Updates Success: " + location.toString(), Toast.LENGTH_SHORT).show();
-                double longitude = location.getLongitude();
-                double latitude = location.getLatitude();
-                tvLatitude.setText(format("Latitude", latitude));
-                tvLongitude.setText(format("Longitude", longitude));
-            }
-
-            @Override
-            public void onFailure(Exception error) {
-                Toast.makeText(MainActivity.this, "Location Updates Failed: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+        btnRequestLocationUpdates.setOnClickListener(v -> {
+            // replace previous subscription, if any
+            if (locationSubscription != null) {
+                locationSubscription.cancel();
             }
-        }));
+            locationSubscription = LocationProvider.requestLocationUpdates(this, this, new LocationProvider.OnLocationUpdatesListener() {
+                @Override
+                public void onSuccess(LocationResult result) {
+                    // obtain latest location
+                    Location location = result.getLastLocation();
+
+                    Toast.makeText(MainActivity.this, "Location Updates Success: " + location.toString(), Toast.LENGTH_SHORT).show();
+                    double longitude = location.getLongitude();
+                    double latitude = location.getLatitude();
+                    tvLatitude.setText(format("Latitude", latitude));
+                    tvLongitude.setText(format("Longitude", longitude));
+                }
+
+                @Override
+                public void onFailure(Exception error) {
+                    Toast.makeText(MainActivity.this, "Location Updates Failed: " + error.getMessage(), Toast.LENGTH_SHORT).show();
+                }
+            });
+        });
 
         // stop location updates
         Button btnStopLocationUpdates = findViewById(R.id.btnStopLocationUpdates);
         btnStopLocationUpdates.setOnClickListener(view -> {
-            LocationProvider.stopLocationUpdates();
+            if (locationSubscription != null) {
+                locationSubscription.cancel();
+            }
             Toast.makeText(MainActivity.this, "Location Updates Stopped Successfully", Toast.LENGTH_SHORT).show();
 
         });
     }
 
-    @Override
-    protected void onPause() {
-        super.onPause();
-        LocationProvider.stopLocationUpdates();
-    }
-
     private String format(@NonNull String label, @NonNull double value) {
         return String.format(Locale.ENGLISH, "%s: %f", label, value);
     }
@@ -0,0 +1,101 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresPermission;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+
+/**
+ * A {@link LocationUploader.Sink} which POST gzip compressed batches to a http endpoint.
+ * <p>
+ * Responses a {@link RejectionPolicy} deems permanent reject the batch for good, others are
+ * retried. By default only errors caused by the batch content are permanent, so that outages
+ * such as expired credentials or a missing route keep batches queued.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class HttpLocationSink implements LocationUploader.Sink {
+    /**
+     * Default connect and read timeout.
+     */
+    private static final int DEFAULT_TIMEOUT_IN_MILLISECONDS = 15000;
+
+    /**
+     * Unprocessable entity status, i.e batch failed validation.
+     */
+    private static final int HTTP_UNPROCESSABLE_ENTITY = 422;
+
+    /**
+     * Reject bad request, entity too large, unsupported media type and unprocessable entity.
+     */
+    public static final RejectionPolicy DEFAULT_REJECTION_POLICY = code ->
+            code == HttpURLConnection.HTTP_BAD_REQUEST
+                    || code == HttpURLConnection.HTTP_ENTITY_TOO_LARGE
+                    || code == HttpURLConnection.HTTP_UNSUPPORTED_TYPE
+                    || code == HTTP_UNPROCESSABLE_ENTITY;
+
+    private final URL url;
+    private final int timeout;
+    private final RejectionPolicy rejectionPolicy;
+
+    public HttpLocationSink(@NonNull URL url) {
+        this(url, DEFAULT_TIMEOUT_IN_MILLISECONDS);
+    }
+
+    public HttpLocationSink(@NonNull URL url, int timeout) {
+        this(url, timeout, DEFAULT_REJECTION_POLICY);
+    }
+
+    public HttpLocationSink(@NonNull URL url, int timeout, @NonNull RejectionPolicy rejectionPolicy) {
+        this.url = url;
+        this.timeout = timeout;
+        this.rejectionPolicy = rejectionPolicy;
+    }
+
+    @RequiresPermission("android.permission.INTERNET")
+    @Override
+    public void send(@NonNull byte[] batch) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+        try {
+            connection.setConnectTimeout(timeout);
+            connection.setReadTimeout(timeout);
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(batch.length);
+            connection.setRequestProperty("Content-Type", "application/octet-stream");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(batch);
+            }
+
+            int code = connection.getResponseCode();
+            if (rejectionPolicy.isRejected(code)) {
+                throw new LocationUploader.RejectedBatchException("Upload Rejected: " + code);
+            }
+            if (code < HttpURLConnection.HTTP_OK || code >= HttpURLConnection.HTTP_MULT_CHOICE) {
+                throw new IOException("Upload Failed: " + code);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * Decide which http response codes reject a batch for good.
+     *
+     * @since 0.5.0
+     */
+    public interface RejectionPolicy {
+        /**
+         * @param code http response code
+         * @return true to drop the batch, false to retry it if unsuccessful
+         */
+        boolean isRejected(int code);
+    }
+}
@@ -0,0 +1,236 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A fixed capacity batch of location fixes stored as primitive columns.
+ * <p>
+ * A batch is encoded column by column and gzip compressed, so that nearby coordinates
+ * compress well before being persisted or uploaded.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationBatch {
+    /**
+     * Encoding format version.
+     */
+    private static final int VERSION = 1;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final float[] accuracies;
+    private final float[] speeds;
+    private final float[] bearings;
+    private final long[] elapsedRealtimeNanos;
+    private int size;
+
+    /**
+     * Create a new instance of {@link LocationBatch}
+     *
+     * @param capacity maximum number of fixes the batch can hold
+     * @since 0.5.0
+     */
+    public LocationBatch(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid Batch Capacity");
+        }
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        accuracies = new float[capacity];
+        speeds = new float[capacity];
+        bearings = new float[capacity];
+        elapsedRealtimeNanos = new long[capacity];
+    }
+
+    /**
+     * Append a fix to the batch
+     *
+     * @return false if the batch is full
+     * @since 0.5.0
+     */
+    public boolean add(
+            double latitude, double longitude,
+            float accuracy, float speed, float bearing,
+            long elapsedRealtimeNanos
+    ) {
+        if (isFull()) {
+            return false;
+        }
+        this.latitudes[size] = latitude;
+        this.longitudes[size] = longitude;
+        this.accuracies[size] = accuracy;
+        this.speeds[size] = speed;
+        this.bearings[size] = bearing;
+        this.elapsedRealtimeNanos[size] = elapsedRealtimeNanos;
+        size++;
+        return true;
+    }
+
+    /**
+     * Drop every other fix in place, aligned so that the next appended fix keeps the spacing.
+     *
+     * @since 0.5.0
+     */
+    public void thin() {
+        int kept = 0;
+        for (int i = size % 2; i < size; i += 2) {
+            latitudes[kept] = latitudes[i];
+            longitudes[kept] = longitudes[i];
+            accuracies[kept] = accuracies[i];
+            speeds[kept] = speeds[i];
+            bearings[kept] = bearings[i];
+            elapsedRealtimeNanos[kept] = elapsedRealtimeNanos[i];
+            kept++;
+        }
+        size = kept;
+    }
+
+    /**
+     * Drop oldest fixes in place
+     *
+     * @param count number of fixes to drop
+     * @since 0.5.0
+     */
+    public void drop(int count) {
+        count = Math.max(0, Math.min(count, size));
+        int remaining = size - count;
+        System.arraycopy(latitudes, count, latitudes, 0, remaining);
+        System.arraycopy(longitudes, count, longitudes, 0, remaining);
+        System.arraycopy(accuracies, count, accuracies, 0, remaining);
+        System.arraycopy(speeds, count, speeds, 0, remaining);
+        System.arraycopy(bearings, count, bearings, 0, remaining);
+        System.arraycopy(elapsedRealtimeNanos, count, elapsedRealtimeNanos, 0, remaining);
+        size = remaining;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return latitudes.length;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == latitudes.length;
+    }
+
+    public double getLatitude(int index) {
+        return latitudes[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitudes[index];
+    }
+
+    public float getAccuracy(int index) {
+        return accuracies[index];
+    }
+
+    public float getSpeed(int index) {
+        return speeds[index];
+    }
+
+    public float getBearing(int index) {
+        return bearings[index];
+    }
+
+    public long getElapsedRealtimeNanos(int index) {
+        return elapsedRealtimeNanos[index];
+    }
+
+    /**
+     * Encode the batch into gzip compressed bytes
+     *
+     * @return
+     * @throws IOException
+     * @since 0.5.0
+     */
+    @NonNull
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            out.writeInt(VERSION);
+            out.writeInt(size);
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(latitudes[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeDouble(longitudes[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeFloat(accuracies[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeFloat(speeds[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeFloat(bearings[i]);
+            }
+            for (int i = 0; i < size; i++) {
+                out.writeLong(elapsedRealtimeNanos[i]);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decode a batch from bytes produced by {@link #encode()}
+     *
+     * @param bytes
+     * @return
+     * @throws IOException
+     * @since 0.5.0
+     */
+    @NonNull
+    public static LocationBatch decode(@NonNull byte[] bytes) throws IOException {
+        try (DataInputStream in = new DataInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(bytes)))
+        ) {
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported Batch Version");
+            }
+            int size = in.readInt();
+            LocationBatch batch = new LocationBatch(Math.max(size, 1));
+            for (int i = 0; i < size; i++) {
+                batch.latitudes[i] = in.readDouble();
+            }
+            for (int i = 0; i < size; i++) {
+                batch.longitudes[i] = in.readDouble();
+            }
+            for (int i = 0; i < size; i++) {
+                batch.accuracies[i] = in.readFloat();
+            }
+            for (int i = 0; i < size; i++) {
+                batch.speeds[i] = in.readFloat();
+            }
+            for (int i = 0; i < size; i++) {
+                batch.bearings[i] = in.readFloat();
+            }
+            for (int i = 0; i < size; i++) {
+                batch.elapsedRealtimeNanos[i] = in.readLong();
+            }
+            batch.size = size;
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A bounded, file backed FIFO queue of encoded {@link LocationBatch}es.
+ * <p>
+ * Each batch is persisted in its own file named after a monotonic sequence, so pending
+ * batches survive process death and are replayed in order.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationBatchQueue {
+    private static final String EXTENSION = ".batch";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final File directory;
+    private final int capacity;
+    private final ArrayDeque<File> files = new ArrayDeque<>();
+    private long sequence;
+
+    /**
+     * Create a new instance of {@link LocationBatchQueue}, loading batches persisted by
+     * a previous session
+     *
+     * @param directory
+     * @param capacity  maximum number of pending batches
+     * @throws IOException
+     * @since 0.5.0
+     */
+    public LocationBatchQueue(@NonNull File directory, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid Queue Capacity");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Queue Directory Not Created");
+        }
+        this.directory = directory;
+        this.capacity = capacity;
+
+        // load persisted batches in sequence order
+        File[] persisted = directory.listFiles();
+        if (persisted != null) {
+            Arrays.sort(persisted);
+            for (File file : persisted) {
+                String name = file.getName();
+                if (name.endsWith(EXTENSION)) {
+                    files.addLast(file);
+                    sequence = Math.max(sequence, parseSequence(name) + 1);
+                }
+                // discard partially written batches
+                else if (name.endsWith(TEMP_EXTENSION)) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Persist a batch at the tail of the queue
+     *
+     * @param batch
+     * @return false if the queue is full
+     * @throws IOException
+     * @since 0.5.0
+     */
+    public synchronized boolean offer(@NonNull byte[] batch) throws IOException {
+        if (isFull()) {
+            return false;
+        }
+        String name = String.format(Locale.ENGLISH, "%019d", sequence++);
+        File temp = new File(directory, name + TEMP_EXTENSION);
+        File file = new File(directory, name + EXTENSION);
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(batch);
+            out.getFD().sync();
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Batch Not Persisted");
+        }
+        files.addLast(file);
+        return true;
+    }
+
+    /**
+     * Obtain the oldest pending batch without removing it
+     *
+     * @return
+     * @since 0.5.0
+     */
+    @Nullable
+    public synchronized File peek() {
+        return files.peekFirst();
+    }
+
+    /**
+     * Read content of a pending batch
+     *
+     * @param file
+     * @return
+     * @throws IOException
+     * @since 0.5.0
+     */
+    @NonNull
+    public byte[] read(@NonNull File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (FileInputStream in = new FileInputStream(file)) {
+            int offset = 0;
+            while (offset < bytes.length) {
+                int read = in.read(bytes, offset, bytes.length - offset);
+                if (read < 0) {
+                    throw new IOException("Batch Truncated");
+                }
+                offset += read;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Remove a pending batch
+     *
+     * @param file
+     * @return
+     * @since 0.5.0
+     */
+    public synchronized boolean remove(@NonNull File file) {
+        boolean removed = files.remove(file);
+        file.delete();
+        return removed;
+    }
+
+    /**
+     * Remove the oldest pending batch
+     *
+     * @return
+     * @since 0.5.0
+     */
+    public synchronized boolean evict() {
+        File file = files.peekFirst();
+        return file != null && remove(file);
+    }
+
+    public synchronized int size() {
+        return files.size();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public synchronized boolean isEmpty() {
+        return files.isEmpty();
+    }
+
+    public synchronized boolean isFull() {
+        return files.size() >= capacity;
+    }
+
+    private static long parseSequence(@NonNull String name) {
+        try {
+            return Long.parseLong(name.substring(0, name.length() - EXTENSION.length()));
+        } catch (NumberFormatException error) {
+            return 0;
+        }
+    }
+}
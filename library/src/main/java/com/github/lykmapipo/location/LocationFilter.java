@@ -0,0 +1,135 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per subscription thresholds a fix must pass before being delivered.
+ * <p>
+ * Thresholds are evaluated against the last delivered fix using primitive math only, so
+ * that fixes a subscriber would discard are rejected before reaching its listener.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationFilter {
+    /**
+     * Mean earth radius in meters.
+     */
+    private static final double EARTH_RADIUS_IN_METERS = 6371008.8;
+
+    private final double minDisplacementSquared;
+    private final long minIntervalNanos;
+    private final float minAccuracy;
+
+    private LocationFilter(@NonNull Builder builder) {
+        double minDisplacementInRadians = builder.minDisplacement / EARTH_RADIUS_IN_METERS;
+        minDisplacementSquared = minDisplacementInRadians * minDisplacementInRadians;
+        minIntervalNanos = builder.minIntervalNanos;
+        minAccuracy = builder.minAccuracy;
+    }
+
+    /**
+     * Check if a fix accuracy radius is acceptable
+     *
+     * @param accuracy in meters
+     * @return
+     * @since 0.5.0
+     */
+    public boolean acceptsAccuracy(float accuracy) {
+        return minAccuracy <= 0 || accuracy <= minAccuracy;
+    }
+
+    /**
+     * Check if enough time elapsed since last delivered fix
+     *
+     * @param fromElapsedRealtimeNanos
+     * @param toElapsedRealtimeNanos
+     * @return
+     * @since 0.5.0
+     */
+    public boolean acceptsInterval(long fromElapsedRealtimeNanos, long toElapsedRealtimeNanos) {
+        return toElapsedRealtimeNanos - fromElapsedRealtimeNanos >= minIntervalNanos;
+    }
+
+    /**
+     * Check if a fix moved far enough from last delivered fix, using equirectangular
+     * approximation which is accurate for displacement thresholds.
+     *
+     * @param fromLatitude
+     * @param fromLongitude
+     * @param cosFromLatitude cosine of from latitude in radians, cached by caller
+     * @param toLatitude
+     * @param toLongitude
+     * @return
+     * @since 0.5.0
+     */
+    public boolean acceptsDisplacement(
+            double fromLatitude, double fromLongitude, double cosFromLatitude,
+            double toLatitude, double toLongitude
+    ) {
+        if (minDisplacementSquared <= 0) {
+            return true;
+        }
+        double deltaLongitude = toLongitude - fromLongitude;
+        if (deltaLongitude > 180) {
+            deltaLongitude -= 360;
+        } else if (deltaLongitude < -180) {
+            deltaLongitude += 360;
+        }
+        double x = Math.toRadians(deltaLongitude) * cosFromLatitude;
+        double y = Math.toRadians(toLatitude - fromLatitude);
+        return x * x + y * y >= minDisplacementSquared;
+    }
+
+    /**
+     * Builder for {@link LocationFilter}
+     *
+     * @since 0.5.0
+     */
+    public static class Builder {
+        private double minDisplacement;
+        private long minIntervalNanos;
+        private float minAccuracy;
+
+        /**
+         * Minimum distance in meters from last delivered fix
+         *
+         * @param meters
+         * @return
+         */
+        public Builder setMinDisplacement(double meters) {
+            this.minDisplacement = meters;
+            return this;
+        }
+
+        /**
+         * Minimum time from last delivered fix
+         *
+         * @param interval
+         * @param unit
+         * @return
+         */
+        public Builder setMinInterval(long interval, @NonNull TimeUnit unit) {
+            this.minIntervalNanos = unit.toNanos(interval);
+            return this;
+        }
+
+        /**
+         * Minimum accuracy, as the largest acceptable accuracy radius in meters
+         *
+         * @param meters
+         * @return
+         */
+        public Builder setMinAccuracy(float meters) {
+            this.minAccuracy = meters;
+            return this;
+        }
+
+        public LocationFilter build() {
+            return new LocationFilter(this);
+        }
+    }
+}
@@ -0,0 +1,309 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory spatial aggregation of location fixes into fixed size grid cells.
+ * <p>
+ * Each cell keeps a fix count and a dwell time, stored in an open addressing primitive map
+ * keyed by packed cell indexes, so memory grows with visited cells rather than with fixes.
+ * Dwell time between two consecutive fixes is attributed to the cell of the earlier one.
+ * <p>
+ * Cells span equal degrees of latitude and longitude, hence get narrower toward the poles.
+ * A grid is not thread safe.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationGrid implements LocationProvider.OnLocationFixListener {
+    /**
+     * Approximate meters per degree of latitude.
+     */
+    private static final double METERS_PER_DEGREE = 111320;
+
+    /**
+     * Default largest gap between consecutive fixes still counted as dwell time.
+     */
+    private static final long DEFAULT_MAX_DWELL_GAP_IN_MILLISECONDS = 300000;
+
+    private static final int DEFAULT_CAPACITY = 64;
+    private static final long EMPTY = -1;
+
+    private final double cellSize;
+    private final long maxDwellGapNanos;
+
+    private long[] keys;
+    private int[] counts;
+    private long[] dwells;
+    private int size;
+    private int threshold;
+
+    // last aggregated fix
+    private long lastKey = EMPTY;
+    private long lastElapsedRealtimeNanos;
+
+    /**
+     * Create a new instance of {@link LocationGrid}
+     *
+     * @param cellSizeInMeters cell height, in meters
+     * @since 0.5.0
+     */
+    public LocationGrid(double cellSizeInMeters) {
+        this(cellSizeInMeters, DEFAULT_MAX_DWELL_GAP_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new instance of {@link LocationGrid}
+     *
+     * @param cellSizeInMeters cell height, in meters
+     * @param maxDwellGap      largest gap between consecutive fixes counted as dwell time
+     * @param unit
+     * @since 0.5.0
+     */
+    public LocationGrid(double cellSizeInMeters, long maxDwellGap, @NonNull TimeUnit unit) {
+        if (cellSizeInMeters <= 0) {
+            throw new IllegalArgumentException("Invalid Cell Size");
+        }
+        this.cellSize = cellSizeInMeters / METERS_PER_DEGREE;
+        this.maxDwellGapNanos = unit.toNanos(maxDwellGap);
+        allocate(DEFAULT_CAPACITY);
+    }
+
+    @Override
+    public void onFix(
+            double latitude, double longitude,
+            float accuracy, float speed, float bearing,
+            long elapsedRealtimeNanos
+    ) {
+        add(latitude, longitude, elapsedRealtimeNanos);
+    }
+
+    @Override
+    public void onFailure(Exception error) {
+        // nothing to aggregate
+    }
+
+    /**
+     * Aggregate a fix
+     *
+     * @param latitude
+     * @param longitude
+     * @param elapsedRealtimeNanos
+     * @since 0.5.0
+     */
+    public void add(double latitude, double longitude, long elapsedRealtimeNanos) {
+        // attribute elapsed time to previous cell
+        if (lastKey != EMPTY) {
+            long gap = elapsedRealtimeNanos - lastElapsedRealtimeNanos;
+            if (gap > 0 && gap <= maxDwellGapNanos) {
+                int slot = slotOf(lastKey);
+                dwells[slot] += TimeUnit.NANOSECONDS.toMillis(gap);
+            }
+        }
+
+        // resolve slot first, insertion may grow arrays
+        long key = getCellKey(latitude, longitude);
+        int slot = slotOf(key);
+        counts[slot]++;
+        lastKey = key;
+        lastElapsedRealtimeNanos = elapsedRealtimeNanos;
+    }
+
+    /**
+     * Merge another grid, i.e from another session, into this grid
+     *
+     * @param other grid with same cell size
+     * @since 0.5.0
+     */
+    public void merge(@NonNull LocationGrid other) {
+        if (Double.compare(cellSize, other.cellSize) != 0) {
+            throw new IllegalArgumentException("Cell Size Mismatch");
+        }
+        for (int i = 0; i < other.keys.length; i++) {
+            long key = other.keys[i];
+            if (key != EMPTY) {
+                int slot = slotOf(key);
+                counts[slot] += other.counts[i];
+                dwells[slot] += other.dwells[i];
+            }
+        }
+    }
+
+    /**
+     * Obtain number of fixes aggregated in the cell containing a given point
+     *
+     * @param latitude
+     * @param longitude
+     * @return
+     * @since 0.5.0
+     */
+    public int getCount(double latitude, double longitude) {
+        int slot = find(getCellKey(latitude, longitude));
+        return slot < 0 ? 0 : counts[slot];
+    }
+
+    /**
+     * Obtain time spent in the cell containing a given point
+     *
+     * @param latitude
+     * @param longitude
+     * @return dwell time in milliseconds
+     * @since 0.5.0
+     */
+    public long getDwellTime(double latitude, double longitude) {
+        int slot = find(getCellKey(latitude, longitude));
+        return slot < 0 ? 0 : dwells[slot];
+    }
+
+    /**
+     * Visit each non empty cell, i.e to render a heatmap
+     *
+     * @param visitor
+     * @since 0.5.0
+     */
+    public void forEach(@NonNull CellVisitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            long key = keys[i];
+            if (key != EMPTY) {
+                double latitude = ((key >>> 32) + 0.5) * cellSize - 90;
+                double longitude = ((key & 0xffffffffL) + 0.5) * cellSize - 180;
+                visitor.visit(latitude, longitude, counts[i], dwells[i]);
+            }
+        }
+    }
+
+    /**
+     * Number of non empty cells
+     *
+     * @return
+     * @since 0.5.0
+     */
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(counts, 0);
+        Arrays.fill(dwells, 0);
+        size = 0;
+        lastKey = EMPTY;
+    }
+
+    /**
+     * Pack row and column of the cell containing a given point
+     *
+     * @param latitude
+     * @param longitude
+     * @return
+     * @since 0.5.0
+     */
+    public long getCellKey(double latitude, double longitude) {
+        long row = (long) ((latitude + 90) / cellSize);
+        long column = (long) ((longitude + 180) / cellSize);
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    /**
+     * Find slot of a key, inserting it if missing
+     */
+    private int slotOf(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                if (size >= threshold) {
+                    grow();
+                    return slotOf(key);
+                }
+                keys[slot] = key;
+                size++;
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    /**
+     * Find slot of a key, or -1 if missing
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (true) {
+            long current = keys[slot];
+            if (current == key) {
+                return slot;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        long[] oldDwells = dwells;
+        allocate(oldKeys.length << 1);
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key != EMPTY) {
+                int slot = hash(key) & mask;
+                while (keys[slot] != EMPTY) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = key;
+                counts[slot] = oldCounts[i];
+                dwells[slot] = oldDwells[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        counts = new int[capacity];
+        dwells = new long[capacity];
+        threshold = (capacity >> 1) + (capacity >> 2);
+    }
+
+    private static int hash(long key) {
+        // murmur3 finalizer
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /**
+     * Receive aggregated cells as primitives.
+     *
+     * @since 0.5.0
+     */
+    public interface CellVisitor {
+        /**
+         * @param latitude    cell center latitude
+         * @param longitude   cell center longitude
+         * @param count       number of fixes
+         * @param dwellMillis dwell time in milliseconds
+         */
+        void visit(double latitude, double longitude, int count, long dwellMillis);
+    }
+}
@@ -0,0 +1,626 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+
+import java.util.Arrays;
+
+/**
+ * Spatial index over recent track history, for nearest neighbour and radius queries.
+ * <p>
+ * Fixes are kept in a fixed capacity ring buffer of primitive arrays. Consecutive fixes in
+ * the same grid cell form a run, and runs are chained, newest first, into cell buckets held
+ * in an open addressing primitive map. A run is contiguous and time ordered in the buffer, so
+ * a time window is located within it by binary search, and a long stay in one cell costs a
+ * single chain step.
+ * <p>
+ * Each fix is identified by a monotonic id; fixes older than the oldest live id are expired,
+ * so bulk eviction only advances that id. Expired buckets are dropped, and bounds of indexed
+ * cells recomputed, on rehash.
+ * <p>
+ * Fixes are expected in time order, as delivered by location updates. Queries do not wrap
+ * around the antimeridian. An index is not thread safe.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationHistoryIndex implements LocationProvider.OnLocationFixListener {
+    /**
+     * Approximate meters per degree of latitude.
+     */
+    private static final double METERS_PER_DEGREE = 111320;
+
+    /**
+     * Mean earth radius in meters.
+     */
+    private static final double EARTH_RADIUS_IN_METERS = 6371008.8;
+
+    private static final int DEFAULT_BUCKETS = 64;
+    private static final long EMPTY = Long.MIN_VALUE;
+    private static final long NONE = -1;
+
+    private final double cellSize;
+    private final int capacity;
+
+    // ring buffer of fixes, indexed by id % capacity
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final long[] elapsedRealtimeNanos;
+    private final long[] runStartIds;
+    private final long[] olderRunEndIds;
+    private long nextId;
+    private long oldestId;
+
+    // buckets, cell key to last fix id of newest run
+    private long[] keys;
+    private long[] newestIds;
+    private int buckets;
+    private int threshold;
+
+    // bounds of live cells
+    private long minRow;
+    private long maxRow;
+    private long minColumn;
+    private long maxColumn;
+    private boolean boundsStale;
+
+    // nearest neighbour max-heap, reused across queries
+    private double[] heapDistances = new double[0];
+    private long[] heapIds = new long[0];
+
+    /**
+     * Create a new instance of {@link LocationHistoryIndex}
+     *
+     * @param cellSizeInMeters cell height, in meters, i.e typical query radius
+     * @param capacity         maximum number of fixes kept, oldest are evicted first
+     * @since 0.5.0
+     */
+    public LocationHistoryIndex(double cellSizeInMeters, int capacity) {
+        if (cellSizeInMeters <= 0) {
+            throw new IllegalArgumentException("Invalid Cell Size");
+        }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Invalid Capacity");
+        }
+        this.cellSize = cellSizeInMeters / METERS_PER_DEGREE;
+        this.capacity = capacity;
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        elapsedRealtimeNanos = new long[capacity];
+        runStartIds = new long[capacity];
+        olderRunEndIds = new long[capacity];
+        allocate(DEFAULT_BUCKETS);
+        resetBounds();
+    }
+
+    @Override
+    public void onFix(
+            double latitude, double longitude,
+            float accuracy, float speed, float bearing,
+            long elapsedRealtimeNanos
+    ) {
+        add(latitude, longitude, elapsedRealtimeNanos);
+    }
+
+    @Override
+    public void onFailure(Exception error) {
+        // nothing to index
+    }
+
+    /**
+     * Index a fix, evicting the oldest one when full
+     *
+     * @param latitude
+     * @param longitude
+     * @param elapsedRealtimeNanos
+     * @return id of indexed fix
+     * @since 0.5.0
+     */
+    public long add(double latitude, double longitude, long elapsedRealtimeNanos) {
+        long id = nextId++;
+        if (id - oldestId >= capacity) {
+            overwrite(id - capacity);
+        }
+
+        long row = row(latitude);
+        long column = column(longitude);
+        int bucket = bucketOf(key(row, column));
+        long newestId = newestIds[bucket];
+
+        // extend newest run of the cell, or start a new one
+        int slot = slot(id);
+        if (newestId == id - 1 && newestId >= oldestId) {
+            runStartIds[slot] = runStartIds[slot(newestId)];
+            olderRunEndIds[slot] = olderRunEndIds[slot(newestId)];
+        } else {
+            runStartIds[slot] = id;
+            olderRunEndIds[slot] = newestId >= oldestId ? newestId : NONE;
+        }
+        latitudes[slot] = latitude;
+        longitudes[slot] = longitude;
+        this.elapsedRealtimeNanos[slot] = elapsedRealtimeNanos;
+        newestIds[bucket] = id;
+
+        minRow = Math.min(minRow, row);
+        maxRow = Math.max(maxRow, row);
+        minColumn = Math.min(minColumn, column);
+        maxColumn = Math.max(maxColumn, column);
+        return id;
+    }
+
+    /**
+     * Evict, in bulk, fixes older than a given time
+     *
+     * @param elapsedRealtimeNanos
+     * @return number of evicted fixes
+     * @since 0.5.0
+     */
+    public int evictBefore(long elapsedRealtimeNanos) {
+        long first = search(oldestId, nextId, elapsedRealtimeNanos);
+        int evicted = (int) (first - oldestId);
+        if (evicted > 0) {
+            oldestId = first;
+            // expired cells are dropped, and bounds shrunk, on next query
+            boundsStale = true;
+        }
+        return evicted;
+    }
+
+    /**
+     * Find fixes within a radius of a point, in no particular order
+     *
+     * @param latitude
+     * @param longitude
+     * @param radius    in meters
+     * @param from      earliest fix time, inclusive
+     * @param to        latest fix time, inclusive
+     * @param ids       receives ids of matching fixes
+     * @return number of ids written, at most {@code ids.length}
+     * @since 0.5.0
+     */
+    public int withinRadius(
+            double latitude, double longitude, double radius,
+            long from, long to, @NonNull long[] ids
+    ) {
+        if (size() == 0 || ids.length == 0) {
+            return 0;
+        }
+        refreshBounds();
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        double radiusInRadians = radius / EARTH_RADIUS_IN_METERS;
+        double maxDistance = radiusInRadians * radiusInRadians;
+
+        // cells covering bounding box
+        double latitudeSpan = Math.toDegrees(radiusInRadians);
+        double edge = Math.min(89.999, Math.abs(latitude) + latitudeSpan);
+        double longitudeSpan = latitudeSpan / Math.cos(Math.toRadians(edge));
+        long fromRow = Math.max(row(latitude - latitudeSpan), minRow);
+        long toRow = Math.min(row(latitude + latitudeSpan), maxRow);
+        long fromColumn = Math.max(column(longitude - longitudeSpan), minColumn);
+        long toColumn = Math.min(column(longitude + longitudeSpan), maxColumn);
+
+        int count = 0;
+        for (long row = fromRow; row <= toRow; row++) {
+            for (long column = fromColumn; column <= toColumn; column++) {
+                count = scan(
+                        find(key(row, column)), from, to,
+                        latitude, longitude, cosLatitude, maxDistance, ids, count, false
+                );
+                if (count == ids.length) {
+                    return count;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find nearest fixes to a point, searching cell rings outward until no closer fix exists
+     *
+     * @param latitude
+     * @param longitude
+     * @param maxDistance farthest distance searched, in meters
+     * @param from        earliest fix time, inclusive
+     * @param to          latest fix time, inclusive
+     * @param ids         receives ids of nearest fixes, nearest first
+     * @return number of ids written, at most {@code ids.length}
+     * @since 0.5.0
+     */
+    public int nearest(
+            double latitude, double longitude, double maxDistance,
+            long from, long to, @NonNull long[] ids
+    ) {
+        int k = ids.length;
+        if (size() == 0 || k == 0) {
+            return 0;
+        }
+        refreshBounds();
+        if (heapIds.length < k) {
+            heapIds = new long[k];
+            heapDistances = new double[k];
+        }
+        int heapSize = 0;
+
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        double maxDistanceInRadians = maxDistance / EARTH_RADIUS_IN_METERS;
+        double ringWidth = Math.toRadians(cellSize) * Math.min(1, cosLatitude);
+        long centerRow = row(latitude);
+        long centerColumn = column(longitude);
+
+        // rings reaching live cells, within max distance
+        long maxRing = Math.max(
+                Math.max(centerRow - minRow, maxRow - centerRow),
+                Math.max(centerColumn - minColumn, maxColumn - centerColumn)
+        );
+        double distanceRings = Math.ceil(maxDistanceInRadians / ringWidth) + 1;
+        if (distanceRings < maxRing) {
+            maxRing = (long) distanceRings;
+        }
+
+        for (long ring = 0; ring <= maxRing; ring++) {
+            // cells of this ring are at least ring - 1 cells away
+            if (heapSize == k && ring > 1) {
+                double bound = (ring - 1) * ringWidth;
+                if (bound * bound > heapDistances[0]) {
+                    break;
+                }
+            }
+
+            long fromRow = Math.max(centerRow - ring, minRow);
+            long toRow = Math.min(centerRow + ring, maxRow);
+            for (long row = fromRow; row <= toRow; row++) {
+                // whole edge rows, only side cells of inner rows
+                boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+                long fromColumn = Math.max(centerColumn - ring, minColumn);
+                long toColumn = Math.min(centerColumn + ring, maxColumn);
+                for (long column = fromColumn; column <= toColumn; column++) {
+                    if (!edgeRow && column != centerColumn - ring && column != centerColumn + ring) {
+                        column = centerColumn + ring - 1;
+                        continue;
+                    }
+                    heapSize = scan(
+                            find(key(row, column)), from, to,
+                            latitude, longitude, cosLatitude,
+                            maxDistanceInRadians * maxDistanceInRadians, ids, heapSize, true
+                    );
+                }
+            }
+        }
+
+        // drain max-heap, farthest first, into nearest first order
+        int count = heapSize;
+        for (int i = count - 1; i >= 0; i--) {
+            ids[i] = heapIds[0];
+            heapSize = poll(heapSize);
+        }
+        return count;
+    }
+
+    /**
+     * Distance between a point and a fix, in meters
+     *
+     * @param latitude
+     * @param longitude
+     * @param id
+     * @return
+     * @since 0.5.0
+     */
+    public double distanceTo(double latitude, double longitude, long id) {
+        int slot = live(id);
+        double cosLatitude = Math.cos(Math.toRadians(latitude));
+        return Math.sqrt(distance(
+                latitude, longitude, cosLatitude, latitudes[slot], longitudes[slot]
+        )) * EARTH_RADIUS_IN_METERS;
+    }
+
+    public double getLatitude(long id) {
+        return latitudes[live(id)];
+    }
+
+    public double getLongitude(long id) {
+        return longitudes[live(id)];
+    }
+
+    public long getElapsedRealtimeNanos(long id) {
+        return elapsedRealtimeNanos[live(id)];
+    }
+
+    /**
+     * Check if a fix is still indexed
+     *
+     * @param id
+     * @return
+     * @since 0.5.0
+     */
+    public boolean contains(long id) {
+        return id >= oldestId && id < nextId;
+    }
+
+    /**
+     * Number of live fixes
+     *
+     * @return
+     * @since 0.5.0
+     */
+    public int size() {
+        return (int) (nextId - oldestId);
+    }
+
+    public void clear() {
+        oldestId = nextId;
+        allocate(DEFAULT_BUCKETS);
+        resetBounds();
+    }
+
+    /**
+     * Scan fixes of a bucket within a time window, collecting those within max distance
+     * either into ids or into nearest neighbour heap of {@code ids.length} capacity
+     *
+     * @return new count of ids, or heap size
+     */
+    private int scan(
+            int bucket, long from, long to,
+            double latitude, double longitude, double cosLatitude, double maxDistance,
+            long[] ids, int count, boolean nearest
+    ) {
+        if (bucket < 0) {
+            return count;
+        }
+        for (long end = newestIds[bucket]; end >= oldestId; end = olderRunEndIds[slot(end)]) {
+            long start = Math.max(runStartIds[slot(end)], oldestId);
+
+            // runs are newest first, skip newer ones and stop at older ones
+            if (elapsedRealtimeNanos[slot(start)] > to) {
+                continue;
+            }
+            if (elapsedRealtimeNanos[slot(end)] < from) {
+                break;
+            }
+
+            for (long id = search(start, end + 1, from); id <= end; id++) {
+                int slot = slot(id);
+                if (elapsedRealtimeNanos[slot] > to) {
+                    break;
+                }
+                double distance = distance(
+                        latitude, longitude, cosLatitude, latitudes[slot], longitudes[slot]
+                );
+                if (distance > maxDistance) {
+                    continue;
+                }
+                if (nearest) {
+                    count = offer(count, ids.length, distance, id);
+                } else {
+                    ids[count++] = id;
+                    if (count == ids.length) {
+                        return count;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Find first id in {@code [low, high)} whose fix is at or after a given time
+     */
+    private long search(long low, long high, long elapsedRealtimeNanos) {
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (this.elapsedRealtimeNanos[slot(middle)] < elapsedRealtimeNanos) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Expire oldest fix, about to be overwritten
+     */
+    private void overwrite(long id) {
+        int slot = slot(id);
+        int bucket = find(key(row(latitudes[slot]), column(longitudes[slot])));
+        oldestId = id + 1;
+        // last fix of its cell, bounds may shrink
+        if (bucket >= 0 && newestIds[bucket] < oldestId) {
+            boundsStale = true;
+        }
+    }
+
+    private void refreshBounds() {
+        if (boundsStale) {
+            rehash(keys.length);
+        }
+    }
+
+    private void resetBounds() {
+        minRow = Long.MAX_VALUE;
+        maxRow = Long.MIN_VALUE;
+        minColumn = Long.MAX_VALUE;
+        maxColumn = Long.MIN_VALUE;
+        boundsStale = false;
+    }
+
+    private int live(long id) {
+        if (!contains(id)) {
+            throw new IllegalArgumentException("Fix Evicted");
+        }
+        return slot(id);
+    }
+
+    private int slot(long id) {
+        return (int) (id % capacity);
+    }
+
+    private long row(double latitude) {
+        return (long) Math.floor((latitude + 90) / cellSize);
+    }
+
+    private long column(double longitude) {
+        return (long) Math.floor((longitude + 180) / cellSize);
+    }
+
+    private static long key(long row, long column) {
+        return (row << 32) | (column & 0xffffffffL);
+    }
+
+    /**
+     * Squared equirectangular distance in radians
+     */
+    private static double distance(
+            double latitude, double longitude, double cosLatitude,
+            double toLatitude, double toLongitude
+    ) {
+        double x = Math.toRadians(toLongitude - longitude) * cosLatitude;
+        double y = Math.toRadians(toLatitude - latitude);
+        return x * x + y * y;
+    }
+
+    private int offer(int heapSize, int k, double distance, long id) {
+        if (heapSize < k) {
+            // sift up
+            int i = heapSize++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (heapDistances[parent] >= distance) {
+                    break;
+                }
+                heapDistances[i] = heapDistances[parent];
+                heapIds[i] = heapIds[parent];
+                i = parent;
+            }
+            heapDistances[i] = distance;
+            heapIds[i] = id;
+        } else if (distance < heapDistances[0]) {
+            siftDown(heapSize, distance, id);
+        }
+        return heapSize;
+    }
+
+    private int poll(int heapSize) {
+        heapSize--;
+        if (heapSize > 0) {
+            siftDown(heapSize, heapDistances[heapSize], heapIds[heapSize]);
+        }
+        return heapSize;
+    }
+
+    private void siftDown(int heapSize, double distance, long id) {
+        int i = 0;
+        while (true) {
+            int child = 2 * i + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && heapDistances[child + 1] > heapDistances[child]) {
+                child++;
+            }
+            if (heapDistances[child] <= distance) {
+                break;
+            }
+            heapDistances[i] = heapDistances[child];
+            heapIds[i] = heapIds[child];
+            i = child;
+        }
+        heapDistances[i] = distance;
+        heapIds[i] = id;
+    }
+
+    /**
+     * Find bucket of a key, inserting it if missing
+     */
+    private int bucketOf(long key) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (true) {
+            long current = keys[bucket];
+            if (current == key) {
+                return bucket;
+            }
+            if (current == EMPTY) {
+                if (buckets >= threshold) {
+                    // drop expired buckets first, grow if still crowded
+                    rehash(keys.length);
+                    if (buckets >= threshold >> 1) {
+                        rehash(keys.length << 1);
+                    }
+                    return bucketOf(key);
+                }
+                keys[bucket] = key;
+                newestIds[bucket] = NONE;
+                buckets++;
+                return bucket;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    /**
+     * Find bucket of a key, or -1 if missing
+     */
+    private int find(long key) {
+        int mask = keys.length - 1;
+        int bucket = hash(key) & mask;
+        while (true) {
+            long current = keys[bucket];
+            if (current == key) {
+                return bucket;
+            }
+            if (current == EMPTY) {
+                return -1;
+            }
+            bucket = (bucket + 1) & mask;
+        }
+    }
+
+    /**
+     * Rebuild buckets keeping live ones, and recompute bounds from them
+     */
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldNewestIds = newestIds;
+        allocate(capacity);
+        resetBounds();
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == EMPTY || oldNewestIds[i] < oldestId) {
+                continue;
+            }
+            int bucket = hash(key) & mask;
+            while (keys[bucket] != EMPTY) {
+                bucket = (bucket + 1) & mask;
+            }
+            keys[bucket] = key;
+            newestIds[bucket] = oldNewestIds[i];
+            buckets++;
+
+            long row = key >> 32;
+            long column = key & 0xffffffffL;
+            minRow = Math.min(minRow, row);
+            maxRow = Math.max(maxRow, row);
+            minColumn = Math.min(minColumn, column);
+            maxColumn = Math.max(maxColumn, column);
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        newestIds = new long[capacity];
+        buckets = 0;
+        threshold = (capacity >> 1) + (capacity >> 2);
+    }
+
+    private static int hash(long key) {
+        // murmur3 finalizer
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
@@ -12,10 +12,13 @@ import android.os.Process;
 
 import androidx.annotation.MainThread;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RequiresPermission;
 import androidx.annotation.VisibleForTesting;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentActivity;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
 
 import com.github.florent37.inlineactivityresult.InlineActivityResult;
 import com.github.florent37.inlineactivityresult.request.Request;
@@ -33,6 +36,7 @@ import com.google.android.gms.tasks.OnCompleteListener;
 import com.google.android.gms.tasks.Task;
 import com.google.android.gms.tasks.TaskCompletionSource;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Locale;
 
@@ -59,6 +63,16 @@ public class LocationProvider {
      */
     private static final long FASTEST_UPDATE_INTERVAL_IN_MILLISECONDS = UPDATE_INTERVAL_IN_MILLISECONDS / 2;
 
+    /**
+     * Shared empty subscriptions.
+     */
+    private static final LocationSubscription[] NO_SUBSCRIPTIONS = new LocationSubscription[0];
+
+    /**
+     * Shared empty fix listeners.
+     */
+    private static final OnLocationFixListener[] NO_FIX_LISTENERS = new OnLocationFixListener[0];
+
     /**
      * Provides access to the Fused Location Provider API.
      */
@@ -85,6 +99,36 @@ public class LocationProvider {
      */
     private static LocationCallback locationCallback;
 
+    /**
+     * Lifecycle bound subscriptions. Copied on write, so that dispatch iterates without locking.
+     */
+    private static volatile LocationSubscription[] subscriptions = NO_SUBSCRIPTIONS;
+
+    /**
+     * Callback for Location events, shared by lifecycle bound subscriptions.
+     */
+    private static LocationCallback subscriptionsCallback;
+
+    /**
+     * Whether location updates are currently requested on behalf of subscriptions.
+     */
+    private static boolean subscriptionsRequested;
+
+    /**
+     * Primitive fix listeners. Copied on write, so that dispatch iterates without locking.
+     */
+    private static volatile OnLocationFixListener[] fixListeners = NO_FIX_LISTENERS;
+
+    /**
+     * Callback for Location events, shared by primitive fix listeners.
+     */
+    private static LocationCallback fixListenersCallback;
+
+    /**
+     * Whether location updates are currently requested on behalf of fix listeners.
+     */
+    private static boolean fixListenersRequested;
+
     /**
      * Create a new instance of {@link FusedLocationProviderClient} for use in a non-activity {@link Context}
      *
@@ -359,6 +403,229 @@ public class LocationProvider {
         return locationCallback;
     }
 
+    /**
+     * Creates a {@link OnLocationUpdatesListener} which unpack received locations into primitives
+     * and pass them to a given {@link OnLocationFixListener}.
+     * <p>
+     * The returned listener does not allocate per dispatched fix, hence suitable for high-rate
+     * update consumers.
+     *
+     * @param listener
+     * @return
+     * @since 0.5.0
+     */
+    public static OnLocationUpdatesListener createLocationUpdatesListener(
+            @NonNull OnLocationFixListener listener
+    ) {
+        return new OnLocationUpdatesListener() {
+            @Override
+            public void onSuccess(LocationResult result) {
+                dispatchLocationFixes(result, listener);
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                listener.onFailure(error);
+            }
+        };
+    }
+
+    /**
+     * Dispatch each location of a given {@link LocationResult} as primitives
+     * <p>
+     * Iterate by index to avoid {@link java.util.Iterator} allocation per dispatch.
+     *
+     * @param result
+     * @param listener
+     * @since 0.5.0
+     */
+    @VisibleForTesting
+    static void dispatchLocationFixes(
+            @NonNull LocationResult result,
+            @NonNull OnLocationFixListener listener
+    ) {
+        List<Location> locations = result.getLocations();
+        for (int i = 0, size = locations.size(); i < size; i++) {
+            Location location = locations.get(i);
+            listener.onFix(
+                    location.getLatitude(),
+                    location.getLongitude(),
+                    location.getAccuracy(),
+                    location.getSpeed(),
+                    location.getBearing(),
+                    location.getElapsedRealtimeNanos()
+            );
+        }
+    }
+
+    /**
+     * Request location updates as primitive fixes
+     *
+     * @param fragment
+     * @param listener
+     * @since 0.5.0
+     */
+    @RequiresPermission(
+            anyOf = {
+                    "android.permission.ACCESS_COARSE_LOCATION",
+                    "android.permission.ACCESS_FINE_LOCATION"
+            }
+    )
+    @MainThread
+    public static synchronized void requestLocationUpdates(
+            @NonNull Fragment fragment,
+            @NonNull OnLocationFixListener listener
+    ) {
+        requestLocationUpdates(fragment.requireActivity(), listener);
+    }
+
+    /**
+     * Request location updates as primitive fixes
+     * <p>
+     * Fix listeners share a single location updates request, which fan-out each fix to every
+     * registered listener until it is stopped.
+     *
+     * @param context
+     * @param listener
+     * @see #stopLocationUpdates(OnLocationFixListener)
+     * @since 0.5.0
+     */
+    @RequiresPermission(
+            anyOf = {
+                    "android.permission.ACCESS_COARSE_LOCATION",
+                    "android.permission.ACCESS_FINE_LOCATION"
+            }
+    )
+    @MainThread
+    public static synchronized void requestLocationUpdates(
+            @NonNull Context context,
+            @NonNull OnLocationFixListener listener
+    ) {
+        // register listener
+        addFixListener(listener);
+
+        // check location settings
+        checkLocationSettings(context, new OnLocationSettingsChangeListener() {
+            @SuppressLint("MissingPermission")
+            @Override
+            public void onSuccess(LocationSettingsResponse response) {
+                synchronized (LocationProvider.class) {
+                    // already requested or listeners stopped meanwhile
+                    if (fixListenersRequested || fixListeners.length == 0) {
+                        return;
+                    }
+
+                    // start request location updates
+                    FusedLocationProviderClient fusedLocationClient = createLocationClient(context);
+                    LocationRequest request = createLocationRequest();
+                    LocationCallback callback = createFixListenersCallback();
+                    fusedLocationClient.requestLocationUpdates(request, callback, Looper.myLooper());
+                    fixListenersRequested = true;
+                }
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                // try resolve error
+                if (error instanceof ResolvableApiException && context instanceof FragmentActivity) {
+                    // do resolve
+                    try {
+                        ResolvableApiException resolvable = (ResolvableApiException) error;
+                        PendingIntent resolution = resolvable.getResolution();
+                        Request request = RequestFabric.create(
+                                resolution.getIntentSender(), null, 0,
+                                0, 0, null
+                        );
+
+                        new InlineActivityResult((FragmentActivity) context)
+                                .startForResult(request)
+                                .onSuccess(result -> requestLocationUpdates(context, listener))
+                                .onFail(result -> notifyFixListener(listener, error));
+                    }
+                    // notify resolve error
+                    catch (Exception resolveError) {
+                        notifyFixListener(listener, resolveError);
+                    }
+                }
+                // notify error
+                else {
+                    notifyFixListener(listener, error);
+                }
+            }
+        });
+    }
+
+    /**
+     * Stop location updates of a given primitive fix listener, and underlying location
+     * updates when it was the last one
+     *
+     * @param listener
+     * @since 0.5.0
+     */
+    public static synchronized void stopLocationUpdates(@NonNull OnLocationFixListener listener) {
+        OnLocationFixListener[] current = fixListeners;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == listener) {
+                OnLocationFixListener[] removed = new OnLocationFixListener[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                fixListeners = removed.length == 0 ? NO_FIX_LISTENERS : removed;
+                break;
+            }
+        }
+        if (fixListeners.length == 0) {
+            stopFixListeners();
+        }
+    }
+
+    /**
+     * Creates a callback which fan-out location events to primitive fix listeners.
+     *
+     * @return
+     * @since 0.5.0
+     */
+    @VisibleForTesting
+    static synchronized LocationCallback createFixListenersCallback() {
+        if (fixListenersCallback == null) {
+            fixListenersCallback = new LocationCallback() {
+                @Override
+                public void onLocationResult(LocationResult result) {
+                    super.onLocationResult(result);
+                    for (OnLocationFixListener listener : fixListeners) {
+                        dispatchLocationFixes(result, listener);
+                    }
+                }
+            };
+        }
+        return fixListenersCallback;
+    }
+
+    private static synchronized void addFixListener(@NonNull OnLocationFixListener listener) {
+        OnLocationFixListener[] current = fixListeners;
+        for (OnLocationFixListener registered : current) {
+            if (registered == listener) {
+                return;
+            }
+        }
+        OnLocationFixListener[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = listener;
+        fixListeners = added;
+    }
+
+    private static void notifyFixListener(
+            @NonNull OnLocationFixListener listener, @NonNull Exception error
+    ) {
+        stopLocationUpdates(listener);
+        listener.onFailure(error);
+    }
+
+    private static synchronized void stopFixListeners() {
+        if (fusedLocationClient != null && fixListenersCallback != null && fixListenersRequested) {
+            fusedLocationClient.removeLocationUpdates(fixListenersCallback);
+        }
+        fixListenersRequested = false;
+    }
+
     /**
      * Request location updates
      *
@@ -403,19 +670,22 @@ public class LocationProvider {
             @SuppressLint("MissingPermission")
             @Override
             public void onSuccess(LocationSettingsResponse response) {
-                // obtain location updates callback
-                LocationCallback callback = createLocationCallback(listener);
+                // register under lock, so that concurrent clear or stop can not miss it
+                synchronized (LocationProvider.class) {
+                    // obtain location updates callback
+                    LocationCallback callback = createLocationCallback(listener);
 
-                // obtain fused location client
-                FusedLocationProviderClient fusedLocationClient = createLocationClient(context);
+                    // obtain fused location client
+                    FusedLocationProviderClient fusedLocationClient = createLocationClient(context);
 
-                // obtain location request
-                LocationRequest request = createLocationRequest();
+                    // obtain location request
+                    LocationRequest request = createLocationRequest();
 
-                // TODO guard register multiple callback
+                    // TODO guard register multiple callback
 
-                // start request location updates
-                fusedLocationClient.requestLocationUpdates(request, callback, Looper.myLooper());
+                    // start request location updates
+                    fusedLocationClient.requestLocationUpdates(request, callback, Looper.myLooper());
+                }
             }
 
             @SuppressLint("MissingPermission")
@@ -450,6 +720,294 @@ public class LocationProvider {
         });
     }
 
+    /**
+     * Request location updates bound to a given {@link LifecycleOwner}
+     * <p>
+     * Location updates are delivered only while the owner is at least started. Underlying
+     * fused location updates are paused when no bound owner is started, resumed when one
+     * starts, and the subscription is cancelled when its owner is destroyed.
+     *
+     * @param context  {@link Context} used to check and resolve location settings
+     * @param owner
+     * @param listener
+     * @return {@link LocationSubscription}
+     * @since 0.5.0
+     */
+    @RequiresPermission(
+            anyOf = {
+                    "android.permission.ACCESS_COARSE_LOCATION",
+                    "android.permission.ACCESS_FINE_LOCATION"
+            }
+    )
+    @MainThread
+    public static synchronized LocationSubscription requestLocationUpdates(
+            @NonNull Context context,
+            @NonNull LifecycleOwner owner,
+            @NonNull OnLocationUpdatesListener listener
+    ) {
+        return requestLocationUpdates(context, owner, null, listener);
+    }
+
+    /**
+     * Request location updates bound to a given {@link LifecycleOwner}, delivering only
+     * fixes which pass a given {@link LocationFilter}
+     *
+     * @param context
+     * @param owner
+     * @param filter   {@link LocationFilter} or null to receive every fix
+     * @param listener
+     * @return {@link LocationSubscription}
+     * @see #requestLocationUpdates(Context, LifecycleOwner, OnLocationUpdatesListener)
+     * @since 0.5.0
+     */
+    @RequiresPermission(
+            anyOf = {
+                    "android.permission.ACCESS_COARSE_LOCATION",
+                    "android.permission.ACCESS_FINE_LOCATION"
+            }
+    )
+    @MainThread
+    public static synchronized LocationSubscription requestLocationUpdates(
+            @NonNull Context context,
+            @NonNull LifecycleOwner owner,
+            @Nullable LocationFilter filter,
+            @NonNull OnLocationUpdatesListener listener
+    ) {
+        return subscribe(new LocationSubscription(context, owner, filter, listener));
+    }
+
+    /**
+     * Register a subscription and observe its owner
+     *
+     * @param subscription
+     * @return
+     * @since 0.5.0
+     */
+    private static synchronized LocationSubscription subscribe(
+            @NonNull LocationSubscription subscription
+    ) {
+        // register subscription
+        LifecycleOwner owner = subscription.getOwner();
+        LocationSubscription[] current = subscriptions;
+        LocationSubscription[] added = Arrays.copyOf(current, current.length + 1);
+        added[current.length] = subscription;
+        subscriptions = added;
+
+        // owner already gone
+        Lifecycle lifecycle = owner.getLifecycle();
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            subscription.cancel();
+        }
+        // observe owner, receive current state immediately
+        else {
+            lifecycle.addObserver(subscription);
+        }
+
+        // return
+        return subscription;
+    }
+
+    /**
+     * Request location updates as primitive fixes bound to a given {@link LifecycleOwner}
+     *
+     * @param context
+     * @param owner
+     * @param listener
+     * @return {@link LocationSubscription}
+     * @see #requestLocationUpdates(Context, LifecycleOwner, OnLocationUpdatesListener)
+     * @since 0.5.0
+     */
+    @RequiresPermission(
+            anyOf = {
+                    "android.permission.ACCESS_COARSE_LOCATION",
+                    "android.permission.ACCESS_FINE_LOCATION"
+            }
+    )
+    @MainThread
+    public static synchronized LocationSubscription requestLocationUpdates(
+            @NonNull Context context,
+            @NonNull LifecycleOwner owner,
+            @NonNull OnLocationFixListener listener
+    ) {
+        return requestLocationUpdates(context, owner, null, listener);
+    }
+
+    /**
+     * Request location updates as primitive fixes bound to a given {@link LifecycleOwner},
+     * delivering only fixes which pass a given {@link LocationFilter}
+     *
+     * @param context
+     * @param owner
+     * @param filter   {@link LocationFilter} or null to receive every fix
+     * @param listener
+     * @return {@link LocationSubscription}
+     * @see #requestLocationUpdates(Context, LifecycleOwner, LocationFilter, OnLocationUpdatesListener)
+     * @since 0.5.0
+     */
+    @RequiresPermission(
+            anyOf = {
+                    "android.permission.ACCESS_COARSE_LOCATION",
+                    "android.permission.ACCESS_FINE_LOCATION"
+            }
+    )
+    @MainThread
+    public static synchronized LocationSubscription requestLocationUpdates(
+            @NonNull Context context,
+            @NonNull LifecycleOwner owner,
+            @Nullable LocationFilter filter,
+            @NonNull OnLocationFixListener listener
+    ) {
+        return subscribe(new LocationSubscription(context, owner, filter, listener));
+    }
+
+    /**
+     * Creates a callback which fan-out location events to started subscriptions.
+     *
+     * @return
+     * @since 0.5.0
+     */
+    @VisibleForTesting
+    static synchronized LocationCallback createSubscriptionsCallback() {
+        if (subscriptionsCallback == null) {
+            subscriptionsCallback = new LocationCallback() {
+                @Override
+                public void onLocationResult(LocationResult result) {
+                    super.onLocationResult(result);
+                    dispatchSubscriptions(result);
+                }
+            };
+        }
+        return subscriptionsCallback;
+    }
+
+    /**
+     * Deliver locations of a result to started subscriptions, each filtering them on its own
+     *
+     * @param result
+     * @since 0.5.0
+     */
+    @VisibleForTesting
+    static void dispatchSubscriptions(@NonNull LocationResult result) {
+        for (LocationSubscription subscription : subscriptions) {
+            if (subscription.isStarted()) {
+                subscription.dispatch(result);
+            }
+        }
+    }
+
+    /**
+     * Resume or pause location updates based on started subscriptions
+     *
+     * @param context
+     * @since 0.5.0
+     */
+    static synchronized void updateSubscriptions(@NonNull Context context) {
+        boolean hasStarted = hasStartedSubscriptions();
+        if (hasStarted && !subscriptionsRequested) {
+            resumeSubscriptions(context);
+        } else if (!hasStarted && subscriptionsRequested) {
+            pauseSubscriptions();
+        }
+    }
+
+    /**
+     * Remove a subscription, pause location updates if it was the last started one
+     *
+     * @param subscription
+     * @since 0.5.0
+     */
+    static synchronized void removeSubscription(@NonNull LocationSubscription subscription) {
+        LocationSubscription[] current = subscriptions;
+        for (int i = 0; i < current.length; i++) {
+            if (current[i] == subscription) {
+                LocationSubscription[] removed = new LocationSubscription[current.length - 1];
+                System.arraycopy(current, 0, removed, 0, i);
+                System.arraycopy(current, i + 1, removed, i, current.length - i - 1);
+                subscriptions = removed.length == 0 ? NO_SUBSCRIPTIONS : removed;
+                break;
+            }
+        }
+        if (subscriptionsRequested && !hasStartedSubscriptions()) {
+            pauseSubscriptions();
+        }
+    }
+
+    private static boolean hasStartedSubscriptions() {
+        for (LocationSubscription subscription : subscriptions) {
+            if (subscription.isStarted()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void resumeSubscriptions(@NonNull Context context) {
+        // check location settings
+        checkLocationSettings(context, new OnLocationSettingsChangeListener() {
+            @SuppressLint("MissingPermission")
+            @Override
+            public void onSuccess(LocationSettingsResponse response) {
+                synchronized (LocationProvider.class) {
+                    // already resumed or owners stopped meanwhile
+                    if (subscriptionsRequested || !hasStartedSubscriptions()) {
+                        return;
+                    }
+
+                    // start request location updates
+                    FusedLocationProviderClient fusedLocationClient = createLocationClient(context);
+                    LocationRequest request = createLocationRequest();
+                    LocationCallback callback = createSubscriptionsCallback();
+                    fusedLocationClient.requestLocationUpdates(request, callback, Looper.getMainLooper());
+                    subscriptionsRequested = true;
+                }
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                // try resolve error
+                if (error instanceof ResolvableApiException && context instanceof FragmentActivity) {
+                    // do resolve
+                    try {
+                        ResolvableApiException resolvable = (ResolvableApiException) error;
+                        PendingIntent resolution = resolvable.getResolution();
+                        Request request = RequestFabric.create(
+                                resolution.getIntentSender(), null, 0,
+                                0, 0, null
+                        );
+
+                        new InlineActivityResult((FragmentActivity) context)
+                                .startForResult(request)
+                                .onSuccess(result -> updateSubscriptions(context))
+                                .onFail(result -> notifySubscriptions(error));
+                    }
+                    // notify resolve error
+                    catch (Exception resolveError) {
+                        notifySubscriptions(resolveError);
+                    }
+                }
+                // notify error
+                else {
+                    notifySubscriptions(error);
+                }
+            }
+        });
+    }
+
+    private static synchronized void pauseSubscriptions() {
+        if (fusedLocationClient != null && subscriptionsCallback != null) {
+            fusedLocationClient.removeLocationUpdates(subscriptionsCallback);
+        }
+        subscriptionsRequested = false;
+    }
+
+    private static void notifySubscriptions(@NonNull Exception error) {
+        for (LocationSubscription subscription : subscriptions) {
+            if (subscription.isStarted()) {
+                subscription.getListener().onFailure(error);
+            }
+        }
+    }
+
     /**
      * Request location address
      *
@@ -525,24 +1083,60 @@ public class LocationProvider {
     }
 
     /**
-     * Stop location updates
+     * Set {@link FusedLocationProviderClient} to use instead of default one
+     *
+     * @param client
+     * @since 0.5.0
+     */
+    @VisibleForTesting
+    static synchronized void setLocationClient(FusedLocationProviderClient client) {
+        fusedLocationClient = client;
+    }
+
+    /**
+     * Set {@link SettingsClient} to use instead of default one
+     *
+     * @param client
+     * @since 0.5.0
+     */
+    @VisibleForTesting
+    static synchronized void setSettingsClient(SettingsClient client) {
+        settingsClient = client;
+    }
+
+    /**
+     * Stop location updates, including those of every primitive fix listener
+     * <p>
+     * Lifecycle bound subscriptions are not affected, they are paused by their owners.
      *
      * @since 0.1.0
      */
-    public static void stopLocationUpdates() {
+    public static synchronized void stopLocationUpdates() {
         boolean shouldStop = fusedLocationClient != null && locationCallback != null;
         if (shouldStop) {
             fusedLocationClient.removeLocationUpdates(locationCallback);
             // TODO execute returned tasks and update states
         }
+        fixListeners = NO_FIX_LISTENERS;
+        stopFixListeners();
     }
 
     /**
      * Clear and reset internal states
+     * <p>
+     * Location updates are stopped first, so that no registered callback is forgotten.
      *
      * @since 0.1.0
      */
     public static synchronized void clear() {
+        stopLocationUpdates();
+        for (LocationSubscription subscription : subscriptions) {
+            subscription.cancel();
+        }
+        subscriptions = NO_SUBSCRIPTIONS;
+        subscriptionsCallback = null;
+        subscriptionsRequested = false;
+        fixListenersCallback = null;
         locationCallback = null;
         locationSettingsRequest = null;
         locationRequest = null;
@@ -568,6 +1162,22 @@ public class LocationProvider {
         void onFailure(Exception error);
     }
 
+    /**
+     * Receive location updates as primitives, without {@link Location} or
+     * {@link LocationResult} access on the consumer side.
+     *
+     * @since 0.5.0
+     */
+    public interface OnLocationFixListener {
+        void onFix(
+                double latitude, double longitude,
+                float accuracy, float speed, float bearing,
+                long elapsedRealtimeNanos
+        );
+
+        void onFailure(Exception error);
+    }
+
     public interface OnLocationSettingsChangeListener {
         void onSuccess(LocationSettingsResponse response);
 
@@ -0,0 +1,322 @@
+package com.github.lykmapipo.location;
+
+import android.annotation.SuppressLint;
+import android.app.Service;
+import android.content.Intent;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A bound service which owns a single location updates subscription and streams fixes to
+ * clients, possibly living in other processes, over {@link Messenger}.
+ * <p>
+ * Fixes are sent in parcel batches sized by each client demand, i.e batch size, maximum
+ * batch delay and credit of fixes the client is ready to receive. When a client runs out of
+ * credit its pending batch is thinned instead of growing. Location updates run only while at
+ * least one client is bound, and a client is dropped as soon as its process dies.
+ * <p>
+ * Use {@link LocationServiceClient} to bind and receive fixes.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationService extends Service implements LifecycleOwner {
+    static final int MSG_SUBSCRIBE = 1;
+    static final int MSG_UNSUBSCRIBE = 2;
+    static final int MSG_REQUEST = 3;
+    static final int MSG_FIXES = 4;
+    static final int MSG_FAILURE = 5;
+
+    static final String KEY_BATCH_SIZE = "batchSize";
+    static final String KEY_MAX_DELAY = "maxDelay";
+    static final String KEY_CREDIT = "credit";
+    static final String KEY_ERROR = "error";
+    static final String KEY_LATITUDES = "latitudes";
+    static final String KEY_LONGITUDES = "longitudes";
+    static final String KEY_ACCURACIES = "accuracies";
+    static final String KEY_SPEEDS = "speeds";
+    static final String KEY_BEARINGS = "bearings";
+    static final String KEY_ELAPSED_REALTIME_NANOS = "elapsedRealtimeNanos";
+
+    private final LifecycleRegistry lifecycle = new LifecycleRegistry(this);
+    private final Handler handler = new Handler(Looper.getMainLooper(), this::handleMessage);
+    private final Messenger messenger = new Messenger(handler);
+    private final List<Client> clients = new ArrayList<>();
+
+    private final LocationProvider.OnLocationFixListener listener =
+            new LocationProvider.OnLocationFixListener() {
+                @Override
+                public void onFix(
+                        double latitude, double longitude,
+                        float accuracy, float speed, float bearing,
+                        long elapsedRealtimeNanos
+                ) {
+                    dispatch(latitude, longitude, accuracy, speed, bearing, elapsedRealtimeNanos);
+                }
+
+                @Override
+                public void onFailure(Exception error) {
+                    dispatch(error);
+                }
+            };
+
+    @SuppressLint("MissingPermission")
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        LocationProvider.requestLocationUpdates(this, this, listener);
+    }
+
+    @Nullable
+    @Override
+    public IBinder onBind(Intent intent) {
+        return messenger.getBinder();
+    }
+
+    @Override
+    public void onDestroy() {
+        handler.removeCallbacksAndMessages(null);
+        for (Client client : clients) {
+            client.messenger.getBinder().unlinkToDeath(client, 0);
+        }
+        clients.clear();
+        lifecycle.handleLifecycleEvent(Lifecycle.Event.ON_DESTROY);
+        super.onDestroy();
+    }
+
+    @NonNull
+    @Override
+    public Lifecycle getLifecycle() {
+        return lifecycle;
+    }
+
+    private boolean handleMessage(@NonNull Message message) {
+        switch (message.what) {
+            case MSG_SUBSCRIBE:
+                subscribe(message.replyTo, message.getData());
+                return true;
+            case MSG_UNSUBSCRIBE:
+                unsubscribe(message.replyTo);
+                return true;
+            case MSG_REQUEST:
+                request(message.replyTo, message.arg1);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void subscribe(@Nullable Messenger replyTo, @NonNull Bundle demand) {
+        if (replyTo == null || find(replyTo) != null) {
+            return;
+        }
+        Client client = new Client(
+                replyTo,
+                Math.max(demand.getInt(KEY_BATCH_SIZE, 1), 1),
+                Math.max(demand.getLong(KEY_MAX_DELAY, 0), 0),
+                Math.max(demand.getInt(KEY_CREDIT, 0), 0)
+        );
+
+        // drop client once its process dies, even while it has no credit to notice
+        try {
+            replyTo.getBinder().linkToDeath(client, 0);
+        }
+        // client process already gone
+        catch (RemoteException error) {
+            return;
+        }
+        clients.add(client);
+        updateLifecycle();
+    }
+
+    private void unsubscribe(@Nullable Messenger replyTo) {
+        Client client = replyTo == null ? null : find(replyTo);
+        if (client != null) {
+            remove(client);
+        }
+    }
+
+    private void request(@Nullable Messenger replyTo, int credit) {
+        Client client = replyTo == null ? null : find(replyTo);
+        if (client != null && credit > 0) {
+            client.credit += credit;
+            // send what was held back for lack of credit
+            if (client.batch.isFull() || client.isDue(SystemClock.uptimeMillis())) {
+                send(client);
+            }
+        }
+    }
+
+    /**
+     * Buffer a fix for each client and send batches which are full or due
+     */
+    @VisibleForTesting
+    void dispatch(
+            double latitude, double longitude,
+            float accuracy, float speed, float bearing,
+            long elapsedRealtimeNanos
+    ) {
+        long now = SystemClock.uptimeMillis();
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            Client client = clients.get(i);
+
+            // out of credit, bound memory by thinning
+            if (client.batch.isFull()) {
+                client.batch.thin();
+            }
+            if (client.batch.isEmpty()) {
+                client.firstFixAt = now;
+            }
+            client.batch.add(latitude, longitude, accuracy, speed, bearing, elapsedRealtimeNanos);
+
+            if (client.batch.isFull() || client.isDue(now)) {
+                send(client);
+            } else if (client.batch.size() == 1 && client.maxDelay > 0) {
+                handler.postAtTime(client.flush, client, now + client.maxDelay);
+            }
+        }
+    }
+
+    private void dispatch(@NonNull Exception error) {
+        for (int i = clients.size() - 1; i >= 0; i--) {
+            Client client = clients.get(i);
+            Message message = Message.obtain(null, MSG_FAILURE);
+            message.getData().putString(KEY_ERROR, String.valueOf(error.getMessage()));
+            try {
+                client.messenger.send(message);
+            } catch (RemoteException remoteError) {
+                remove(client);
+            }
+        }
+    }
+
+    private void send(@NonNull Client client) {
+        LocationBatch batch = client.batch;
+        int count = Math.min(batch.size(), client.credit);
+        if (count == 0) {
+            return;
+        }
+
+        // send oldest fixes allowed by credit
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        float[] accuracies = new float[count];
+        float[] speeds = new float[count];
+        float[] bearings = new float[count];
+        long[] elapsedRealtimeNanos = new long[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = batch.getLatitude(i);
+            longitudes[i] = batch.getLongitude(i);
+            accuracies[i] = batch.getAccuracy(i);
+            speeds[i] = batch.getSpeed(i);
+            bearings[i] = batch.getBearing(i);
+            elapsedRealtimeNanos[i] = batch.getElapsedRealtimeNanos(i);
+        }
+        Message message = Message.obtain(null, MSG_FIXES);
+        Bundle data = message.getData();
+        data.putDoubleArray(KEY_LATITUDES, latitudes);
+        data.putDoubleArray(KEY_LONGITUDES, longitudes);
+        data.putFloatArray(KEY_ACCURACIES, accuracies);
+        data.putFloatArray(KEY_SPEEDS, speeds);
+        data.putFloatArray(KEY_BEARINGS, bearings);
+        data.putLongArray(KEY_ELAPSED_REALTIME_NANOS, elapsedRealtimeNanos);
+
+        try {
+            client.messenger.send(message);
+        }
+        // client process gone
+        catch (RemoteException error) {
+            remove(client);
+            return;
+        }
+
+        // keep fixes not covered by credit
+        client.credit -= count;
+        batch.drop(count);
+        handler.removeCallbacks(client.flush, client);
+        client.firstFixAt = SystemClock.uptimeMillis();
+    }
+
+    private void remove(@NonNull Client client) {
+        if (!clients.remove(client)) {
+            return;
+        }
+        client.messenger.getBinder().unlinkToDeath(client, 0);
+        handler.removeCallbacksAndMessages(client);
+        updateLifecycle();
+    }
+
+    @Nullable
+    private Client find(@NonNull Messenger messenger) {
+        for (Client client : clients) {
+            if (client.messenger.equals(messenger)) {
+                return client;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Run location updates only while clients are bound
+     */
+    private void updateLifecycle() {
+        if (lifecycle.getCurrentState() == Lifecycle.State.DESTROYED) {
+            return;
+        }
+        lifecycle.handleLifecycleEvent(
+                clients.isEmpty() ? Lifecycle.Event.ON_STOP : Lifecycle.Event.ON_START
+        );
+    }
+
+    @VisibleForTesting
+    int getClientCount() {
+        return clients.size();
+    }
+
+    /**
+     * Bound client and its demand.
+     */
+    private final class Client implements IBinder.DeathRecipient {
+        final Messenger messenger;
+        final LocationBatch batch;
+        final long maxDelay;
+        final Runnable flush = () -> send(this);
+        int credit;
+        long firstFixAt;
+
+        Client(@NonNull Messenger messenger, int batchSize, long maxDelay, int credit) {
+            this.messenger = messenger;
+            this.batch = new LocationBatch(batchSize);
+            this.maxDelay = maxDelay;
+            this.credit = credit;
+        }
+
+        boolean isDue(long now) {
+            return !batch.isEmpty() && now - firstFixAt >= maxDelay;
+        }
+
+        @Override
+        public void binderDied() {
+            // called on a binder thread
+            handler.post(() -> remove(this));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package com.github.lykmapipo.location;
+
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+import android.os.RemoteException;
+
+import androidx.annotation.MainThread;
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Receive location fixes streamed by {@link LocationService}, possibly hosted in another
+ * process of the same application.
+ * <p>
+ * The client announces its demand on connect and grants credit back as it consumes fixes,
+ * so that a slow client is never flooded.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationServiceClient implements ServiceConnection {
+    /**
+     * Default number of fixes per batch.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 1;
+
+    /**
+     * Default number of batches the client is ready to receive ahead.
+     */
+    private static final int DEFAULT_WINDOW = 2;
+
+    private final Context context;
+    private final LocationProvider.OnLocationFixListener listener;
+    private final int batchSize;
+    private final long maxDelay;
+    private final Messenger receiver;
+    private Messenger service;
+    private boolean bound;
+
+    /**
+     * Create a client which receives each fix as soon as it arrives
+     *
+     * @param context
+     * @param listener
+     * @since 0.5.0
+     */
+    public LocationServiceClient(
+            @NonNull Context context,
+            @NonNull LocationProvider.OnLocationFixListener listener
+    ) {
+        this(context, DEFAULT_BATCH_SIZE, 0, TimeUnit.MILLISECONDS, listener);
+    }
+
+    /**
+     * Create a client which receives fixes in batches
+     *
+     * @param context
+     * @param batchSize maximum fixes per batch
+     * @param maxDelay  maximum time a fix waits for its batch to fill
+     * @param unit
+     * @param listener
+     * @since 0.5.0
+     */
+    public LocationServiceClient(
+            @NonNull Context context,
+            int batchSize, long maxDelay, @NonNull TimeUnit unit,
+            @NonNull LocationProvider.OnLocationFixListener listener
+    ) {
+        this.context = context.getApplicationContext();
+        this.listener = listener;
+        this.batchSize = Math.max(batchSize, 1);
+        this.maxDelay = unit.toMillis(maxDelay);
+        this.receiver = new Messenger(new Handler(Looper.getMainLooper(), this::handleMessage));
+    }
+
+    /**
+     * Bind to {@link LocationService} and start receiving fixes
+     *
+     * @return false if the service could not be bound
+     * @since 0.5.0
+     */
+    @MainThread
+    public boolean connect() {
+        if (!bound) {
+            Intent intent = new Intent(context, LocationService.class);
+            bound = context.bindService(intent, this, Context.BIND_AUTO_CREATE);
+
+            // release connection even when binding failed
+            if (!bound) {
+                unbind();
+            }
+        }
+        return bound;
+    }
+
+    /**
+     * Stop receiving fixes and unbind from {@link LocationService}
+     *
+     * @since 0.5.0
+     */
+    @MainThread
+    public void disconnect() {
+        if (service != null) {
+            send(Message.obtain(null, LocationService.MSG_UNSUBSCRIBE));
+            service = null;
+        }
+        if (bound) {
+            unbind();
+            bound = false;
+        }
+    }
+
+    @Override
+    public void onServiceConnected(ComponentName name, IBinder binder) {
+        service = new Messenger(binder);
+
+        // announce demand
+        Message message = Message.obtain(null, LocationService.MSG_SUBSCRIBE);
+        Bundle demand = message.getData();
+        demand.putInt(LocationService.KEY_BATCH_SIZE, batchSize);
+        demand.putLong(LocationService.KEY_MAX_DELAY, maxDelay);
+        demand.putInt(LocationService.KEY_CREDIT, batchSize * DEFAULT_WINDOW);
+        send(message);
+    }
+
+    @Override
+    public void onServiceDisconnected(ComponentName name) {
+        // service process died, resubscribe once reconnected
+        service = null;
+    }
+
+    private void unbind() {
+        try {
+            context.unbindService(this);
+        }
+        // connection was never registered
+        catch (IllegalArgumentException error) {
+            // nothing to release
+        }
+    }
+
+    private boolean handleMessage(@NonNull Message message) {
+        switch (message.what) {
+            case LocationService.MSG_FIXES:
+                receive(message.getData());
+                return true;
+            case LocationService.MSG_FAILURE:
+                String error = message.getData().getString(LocationService.KEY_ERROR);
+                listener.onFailure(new Exception(error));
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void receive(@NonNull Bundle data) {
+        double[] latitudes = data.getDoubleArray(LocationService.KEY_LATITUDES);
+        double[] longitudes = data.getDoubleArray(LocationService.KEY_LONGITUDES);
+        float[] accuracies = data.getFloatArray(LocationService.KEY_ACCURACIES);
+        float[] speeds = data.getFloatArray(LocationService.KEY_SPEEDS);
+        float[] bearings = data.getFloatArray(LocationService.KEY_BEARINGS);
+        long[] elapsedRealtimeNanos = data.getLongArray(LocationService.KEY_ELAPSED_REALTIME_NANOS);
+        if (latitudes == null || longitudes == null || accuracies == null
+                || speeds == null || bearings == null || elapsedRealtimeNanos == null) {
+            return;
+        }
+
+        // deliver fixes
+        for (int i = 0; i < latitudes.length; i++) {
+            listener.onFix(
+                    latitudes[i], longitudes[i],
+                    accuracies[i], speeds[i], bearings[i],
+                    elapsedRealtimeNanos[i]
+            );
+        }
+
+        // grant consumed credit back
+        if (service != null) {
+            send(Message.obtain(null, LocationService.MSG_REQUEST, latitudes.length, 0));
+        }
+    }
+
+    private void send(@NonNull Message message) {
+        message.replyTo = receiver;
+        try {
+            service.send(message);
+        }
+        // service process gone, wait for reconnect
+        catch (RemoteException error) {
+            service = null;
+        }
+    }
+}
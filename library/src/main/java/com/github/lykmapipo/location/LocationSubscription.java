@@ -0,0 +1,238 @@
+package com.github.lykmapipo.location;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.AnyThread;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleEventObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.gms.location.LocationResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A location updates subscription bound to a {@link LifecycleOwner}.
+ * <p>
+ * A subscription receives location updates only while its owner is at least started, and
+ * is cancelled once its owner is destroyed. Underlying fused location updates run only
+ * while at least one subscription is started.
+ * <p>
+ * An optional {@link LocationFilter} rejects fixes before they reach the listener, checking
+ * each location of a batched result. Filter state is confined to the main thread, where
+ * location events are dispatched.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationSubscription implements LifecycleEventObserver {
+    private final Context context;
+    private final LifecycleOwner owner;
+    private final LocationFilter filter;
+    private final LocationProvider.OnLocationUpdatesListener listener;
+    private final LocationProvider.OnLocationFixListener fixListener;
+    private volatile boolean started;
+    private volatile boolean cancelled;
+
+    // last delivered fix
+    private boolean hasLast;
+    private double lastLatitude;
+    private double lastLongitude;
+    private double cosLastLatitude;
+    private long lastElapsedRealtimeNanos;
+
+    LocationSubscription(
+            @NonNull Context context,
+            @NonNull LifecycleOwner owner,
+            @Nullable LocationFilter filter,
+            @NonNull LocationProvider.OnLocationUpdatesListener listener
+    ) {
+        this.context = context;
+        this.owner = owner;
+        this.filter = filter;
+        this.listener = listener;
+        this.fixListener = null;
+    }
+
+    LocationSubscription(
+            @NonNull Context context,
+            @NonNull LifecycleOwner owner,
+            @Nullable LocationFilter filter,
+            @NonNull LocationProvider.OnLocationFixListener listener
+    ) {
+        this.context = context;
+        this.owner = owner;
+        this.filter = filter;
+        this.listener = LocationProvider.createLocationUpdatesListener(listener);
+        this.fixListener = listener;
+    }
+
+    @Override
+    public void onStateChanged(@NonNull LifecycleOwner source, @NonNull Lifecycle.Event event) {
+        // owner gone, release subscription
+        if (event == Lifecycle.Event.ON_DESTROY) {
+            cancel();
+            return;
+        }
+
+        // pause or resume on owner visibility changes
+        boolean isStarted = source.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED);
+        if (!cancelled && isStarted != started) {
+            started = isStarted;
+            LocationProvider.updateSubscriptions(context);
+        }
+    }
+
+    /**
+     * Stop receiving location updates
+     *
+     * @since 0.5.0
+     */
+    @AnyThread
+    public void cancel() {
+        synchronized (this) {
+            if (cancelled) {
+                return;
+            }
+            cancelled = true;
+            started = false;
+        }
+
+        // lifecycle observers are main thread only
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            owner.getLifecycle().removeObserver(this);
+        } else {
+            new Handler(Looper.getMainLooper()).post(() -> owner.getLifecycle().removeObserver(this));
+        }
+        LocationProvider.removeSubscription(this);
+    }
+
+    /**
+     * Check if subscription owner is started and hence receive location updates
+     *
+     * @return
+     * @since 0.5.0
+     */
+    public boolean isStarted() {
+        return started && !cancelled;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @NonNull
+    LifecycleOwner getOwner() {
+        return owner;
+    }
+
+    @NonNull
+    LocationProvider.OnLocationUpdatesListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Deliver locations of a result which pass subscription filter
+     *
+     * @param result
+     * @since 0.5.0
+     */
+    void dispatch(@NonNull LocationResult result) {
+        List<Location> locations = result.getLocations();
+        int size = locations.size();
+
+        // primitive consumer, filter each fix without allocation
+        if (fixListener != null) {
+            for (int i = 0; i < size; i++) {
+                Location location = locations.get(i);
+                if (accept(location)) {
+                    fixListener.onFix(
+                            location.getLatitude(),
+                            location.getLongitude(),
+                            location.getAccuracy(),
+                            location.getSpeed(),
+                            location.getBearing(),
+                            location.getElapsedRealtimeNanos()
+                    );
+                }
+            }
+            return;
+        }
+
+        // unfiltered, deliver as is
+        if (filter == null) {
+            listener.onSuccess(result);
+            return;
+        }
+
+        // deliver accepted locations only
+        List<Location> accepted = null;
+        for (int i = 0; i < size; i++) {
+            Location location = locations.get(i);
+            if (accept(location)) {
+                if (accepted == null) {
+                    accepted = new ArrayList<>(size);
+                }
+                accepted.add(location);
+            }
+        }
+        if (accepted != null) {
+            listener.onSuccess(accepted.size() == size ? result : LocationResult.create(accepted));
+        }
+    }
+
+    /**
+     * Check if a location pass subscription filter, and remember it as last delivered if so
+     *
+     * @param location
+     * @return
+     * @since 0.5.0
+     */
+    boolean accept(@Nullable Location location) {
+        if (filter == null || location == null) {
+            return true;
+        }
+        return accept(
+                location.getLatitude(), location.getLongitude(),
+                location.getAccuracy(), location.getElapsedRealtimeNanos()
+        );
+    }
+
+    boolean accept(double latitude, double longitude, float accuracy, long elapsedRealtimeNanos) {
+        if (filter == null) {
+            return true;
+        }
+
+        // reject, cheapest checks first
+        if (!filter.acceptsAccuracy(accuracy)) {
+            return false;
+        }
+        if (hasLast) {
+            if (!filter.acceptsInterval(lastElapsedRealtimeNanos, elapsedRealtimeNanos)) {
+                return false;
+            }
+            if (!filter.acceptsDisplacement(
+                    lastLatitude, lastLongitude, cosLastLatitude, latitude, longitude)
+            ) {
+                return false;
+            }
+        }
+
+        // remember delivered fix
+        if (!hasLast || lastLatitude != latitude) {
+            cosLastLatitude = Math.cos(Math.toRadians(latitude));
+        }
+        hasLast = true;
+        lastLatitude = latitude;
+        lastLongitude = longitude;
+        lastElapsedRealtimeNanos = elapsedRealtimeNanos;
+        return true;
+    }
+}
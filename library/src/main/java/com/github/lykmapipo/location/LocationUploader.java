@@ -0,0 +1,432 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.VisibleForTesting;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Upload location fixes in compressed batches.
+ * <p>
+ * Fixes received through {@link LocationProvider.OnLocationFixListener} are buffered in
+ * memory, flushed into a {@link LocationBatch} once batch size or batch delay is reached,
+ * persisted into a bounded {@link LocationBatchQueue} and sent to a {@link Sink} in order,
+ * with exponential backoff on failure. Batches the sink rejects for good are dropped.
+ * <p>
+ * When the queue is full, {@link Backpressure} decides whether to drop batches or thin
+ * buffered fixes until the sink catches up.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class LocationUploader implements LocationProvider.OnLocationFixListener {
+    /**
+     * Default number of fixes per batch.
+     */
+    private static final int DEFAULT_BATCH_SIZE = 100;
+
+    /**
+     * Default maximum time a fix waits in memory before its batch is flushed.
+     */
+    private static final long DEFAULT_BATCH_DELAY_IN_MILLISECONDS = 60000;
+
+    /**
+     * Default maximum number of batches pending upload.
+     */
+    private static final int DEFAULT_QUEUE_CAPACITY = 50;
+
+    /**
+     * Default delay before first retry of a failed upload.
+     */
+    private static final long DEFAULT_INITIAL_BACKOFF_IN_MILLISECONDS = 1000;
+
+    /**
+     * Default maximum delay between retries of a failed upload.
+     */
+    private static final long DEFAULT_MAX_BACKOFF_IN_MILLISECONDS = 300000;
+
+    private final Sink sink;
+    private final LocationBatchQueue queue;
+    private final long batchDelay;
+    private final long initialBackoff;
+    private final long maxBackoff;
+    private final Backpressure backpressure;
+    private final ScheduledExecutorService executor;
+    private final boolean ownsExecutor;
+
+    private final Runnable flushTask = this::doFlush;
+    private final Runnable drainTask = this::doDrain;
+    private final Runnable retryTask = () -> {
+        retryScheduled = false;
+        doDrain();
+    };
+
+    private volatile boolean shutdown;
+
+    // guarded by this
+    private LocationBatch pending;
+    private LocationBatch spare;
+    private boolean saturated;
+    private long droppedCount;
+    private ScheduledFuture<?> flushFuture;
+
+    // confined to executor
+    private int attempts;
+    private boolean retryScheduled;
+    private ScheduledFuture<?> retryFuture;
+    private boolean stopped;
+
+    private LocationUploader(@NonNull Builder builder) throws IOException {
+        sink = builder.sink;
+        queue = new LocationBatchQueue(builder.directory, builder.queueCapacity);
+        batchDelay = builder.batchDelay;
+        initialBackoff = builder.initialBackoff;
+        maxBackoff = builder.maxBackoff;
+        backpressure = builder.backpressure;
+        ownsExecutor = builder.executor == null;
+        if (ownsExecutor) {
+            // drop delayed flush and retry on shutdown
+            ScheduledThreadPoolExecutor owned = new ScheduledThreadPoolExecutor(1);
+            owned.setExecuteExistingDelayedTasksAfterShutdownPolicy(false);
+            owned.setRemoveOnCancelPolicy(true);
+            executor = owned;
+        } else {
+            executor = builder.executor;
+        }
+        pending = new LocationBatch(builder.batchSize);
+        spare = new LocationBatch(builder.batchSize);
+
+        // resume batches persisted by previous session
+        executor.execute(drainTask);
+    }
+
+    @Override
+    public void onFix(
+            double latitude, double longitude,
+            float accuracy, float speed, float bearing,
+            long elapsedRealtimeNanos
+    ) {
+        if (shutdown) {
+            return;
+        }
+
+        synchronized (this) {
+            // flush lags behind or queue is saturated, bound memory by thinning
+            if (pending.isFull()) {
+                pending.thin();
+            }
+
+            pending.add(latitude, longitude, accuracy, speed, bearing, elapsedRealtimeNanos);
+
+            // flush on batch size or after batch delay
+            if (pending.isFull() && !saturated) {
+                executor.execute(flushTask);
+            } else if (pending.size() == 1) {
+                flushFuture = executor.schedule(flushTask, batchDelay, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    @Override
+    public void onFailure(Exception error) {
+        // nothing to upload
+    }
+
+    /**
+     * Flush buffered fixes and try upload pending batches immediately
+     *
+     * @since 0.5.0
+     */
+    public void flush() {
+        if (shutdown) {
+            return;
+        }
+        executor.execute(flushTask);
+    }
+
+    /**
+     * Flush buffered fixes and stop uploading. Pending batches are kept on disk and
+     * uploaded by the next instance using same directory.
+     * <p>
+     * Scheduled flush and retry are cancelled, so no batch is sent once the final flush
+     * completes.
+     *
+     * @since 0.5.0
+     */
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+
+        executor.execute(() -> {
+            synchronized (this) {
+                saturated = false;
+            }
+            doFlush();
+
+            // cancel delayed tasks, ignore ones already queued
+            stopped = true;
+            if (retryFuture != null) {
+                retryFuture.cancel(false);
+            }
+            synchronized (this) {
+                if (flushFuture != null) {
+                    flushFuture.cancel(false);
+                }
+            }
+        });
+
+        // leave injected executor to its owner
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Number of batches dropped due to backpressure, persistence failure or rejection by
+     * the sink. Fixes dropped by thinning are not counted.
+     *
+     * @return
+     * @since 0.5.0
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    /**
+     * Number of batches pending upload
+     *
+     * @return
+     * @since 0.5.0
+     */
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    private void doFlush() {
+        if (stopped) {
+            return;
+        }
+
+        LocationBatch batch;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            // keep buffering, thinned, until the sink catches up
+            if (backpressure == Backpressure.THIN && queue.isFull()) {
+                saturated = true;
+                return;
+            }
+
+            // swap buffers, so fixes keep arriving while the batch is persisted
+            batch = pending;
+            pending = spare;
+            spare = batch;
+        }
+
+        try {
+            byte[] bytes = batch.encode();
+            boolean queued = queue.offer(bytes);
+            if (!queued && backpressure == Backpressure.DROP_OLDEST) {
+                queue.evict();
+                drop();
+                queued = queue.offer(bytes);
+            }
+            if (!queued) {
+                drop();
+            }
+        }
+        // drop unpersisted batch
+        catch (IOException error) {
+            drop();
+        }
+        // release batch for reuse
+        finally {
+            synchronized (this) {
+                batch.clear();
+            }
+        }
+
+        doDrain();
+    }
+
+    private void doDrain() {
+        // wait for scheduled retry
+        if (retryScheduled || stopped) {
+            return;
+        }
+
+        File file;
+        while ((file = queue.peek()) != null) {
+            // read batch, discard unreadable ones
+            byte[] bytes;
+            try {
+                bytes = queue.read(file);
+            } catch (IOException error) {
+                queue.remove(file);
+                continue;
+            }
+
+            // send batch, retry later on failure
+            try {
+                sink.send(bytes);
+            }
+            // never accepted, drop instead of blocking later batches
+            catch (RejectedBatchException error) {
+                drop();
+            }
+            catch (Exception error) {
+                if (shutdown) {
+                    return;
+                }
+                attempts++;
+                retryScheduled = true;
+                retryFuture = executor.schedule(retryTask, backoff(attempts), TimeUnit.MILLISECONDS);
+                return;
+            }
+
+            // acknowledge batch
+            queue.remove(file);
+            attempts = 0;
+
+            // resume flushing after saturation
+            synchronized (this) {
+                if (saturated && !shutdown) {
+                    saturated = false;
+                    executor.execute(flushTask);
+                }
+            }
+        }
+    }
+
+    @VisibleForTesting
+    long backoff(int attempts) {
+        long backoff = initialBackoff << Math.min(attempts - 1, 30);
+        return backoff <= 0 ? maxBackoff : Math.min(backoff, maxBackoff);
+    }
+
+    private synchronized void drop() {
+        droppedCount++;
+    }
+
+    /**
+     * Decide what to do when pending batches queue is full.
+     *
+     * @since 0.5.0
+     */
+    public enum Backpressure {
+        /**
+         * Drop newly flushed batch.
+         */
+        DROP_NEWEST,
+        /**
+         * Evict the oldest pending batch to persist newly flushed batch.
+         */
+        DROP_OLDEST,
+        /**
+         * Keep buffering in memory, dropping every other fix whenever the buffer is full.
+         */
+        THIN
+    }
+
+    /**
+     * Destination of encoded batches, i.e server endpoint.
+     *
+     * @since 0.5.0
+     */
+    public interface Sink {
+        /**
+         * Send a gzip compressed batch produced by {@link LocationBatch#encode()}
+         *
+         * @param batch
+         * @throws RejectedBatchException if batch will never be accepted and should be dropped
+         * @throws Exception              if batch was not accepted and should be retried
+         */
+        void send(@NonNull byte[] batch) throws Exception;
+    }
+
+    /**
+     * Thrown by a {@link Sink} which permanently rejects a batch, i.e malformed or too large.
+     *
+     * @since 0.5.0
+     */
+    public static class RejectedBatchException extends IOException {
+        public RejectedBatchException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Builder for {@link LocationUploader}
+     *
+     * @since 0.5.0
+     */
+    public static class Builder {
+        private final File directory;
+        private final Sink sink;
+        private int batchSize = DEFAULT_BATCH_SIZE;
+        private long batchDelay = DEFAULT_BATCH_DELAY_IN_MILLISECONDS;
+        private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+        private long initialBackoff = DEFAULT_INITIAL_BACKOFF_IN_MILLISECONDS;
+        private long maxBackoff = DEFAULT_MAX_BACKOFF_IN_MILLISECONDS;
+        private Backpressure backpressure = Backpressure.DROP_OLDEST;
+        private ScheduledExecutorService executor;
+
+        /**
+         * @param directory where pending batches are persisted
+         * @param sink      where batches are uploaded
+         */
+        public Builder(@NonNull File directory, @NonNull Sink sink) {
+            this.directory = directory;
+            this.sink = sink;
+        }
+
+        public Builder setBatchSize(int batchSize) {
+            if (batchSize <= 0) {
+                throw new IllegalArgumentException("Invalid Batch Size");
+            }
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        public Builder setBatchDelay(long delay, @NonNull TimeUnit unit) {
+            this.batchDelay = unit.toMillis(delay);
+            return this;
+        }
+
+        public Builder setQueueCapacity(int queueCapacity) {
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder setBackoff(long initial, long max, @NonNull TimeUnit unit) {
+            this.initialBackoff = Math.max(unit.toMillis(initial), 1);
+            this.maxBackoff = Math.max(unit.toMillis(max), this.initialBackoff);
+            return this;
+        }
+
+        public Builder setBackpressure(@NonNull Backpressure backpressure) {
+            this.backpressure = backpressure;
+            return this;
+        }
+
+        @VisibleForTesting
+        Builder setExecutor(@NonNull ScheduledExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public LocationUploader build() throws IOException {
+            return new LocationUploader(this);
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.WorkerThread;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compute {@link TripStats} over a recorded track stored as primitive arrays.
+ * <p>
+ * Per segment distance, speed and moving time are computed in parallel with fork/join over
+ * index ranges and merged, using an equirectangular distance kernel which is accurate for
+ * consecutive fixes. Stops are then detected by a single linear scan over segment speeds.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class TripAnalytics {
+    /**
+     * Mean earth radius in meters.
+     */
+    private static final double EARTH_RADIUS_IN_METERS = 6371008.8;
+
+    /**
+     * Default speed, in meters per second, below which a segment is idle.
+     */
+    private static final float DEFAULT_MOVING_SPEED = 0.5f;
+
+    /**
+     * Default shortest idle time considered a stop.
+     */
+    private static final long DEFAULT_MIN_STOP_DURATION_IN_MILLISECONDS = 120000;
+
+    /**
+     * Speed histogram resolution and range, in meters per second.
+     */
+    private static final float SPEED_BIN_WIDTH = 0.1f;
+    private static final int SPEED_BINS = 1000;
+
+    /**
+     * Number of segments below which a range is computed sequentially.
+     */
+    private static final int SEQUENTIAL_THRESHOLD = 8192;
+
+    /**
+     * Pool shared by analytics instances, sized to available cores.
+     */
+    private static ForkJoinPool sharedPool;
+
+    private final float movingSpeed;
+    private final long minStopDurationNanos;
+    private final ForkJoinPool pool;
+
+    public TripAnalytics() {
+        this(DEFAULT_MOVING_SPEED, DEFAULT_MIN_STOP_DURATION_IN_MILLISECONDS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Create a new instance of {@link TripAnalytics}
+     *
+     * @param movingSpeed     speed in meters per second below which a segment is idle
+     * @param minStopDuration shortest idle time considered a stop
+     * @param unit
+     * @since 0.5.0
+     */
+    public TripAnalytics(float movingSpeed, long minStopDuration, @NonNull TimeUnit unit) {
+        this(movingSpeed, minStopDuration, unit, createPool());
+    }
+
+    TripAnalytics(
+            float movingSpeed, long minStopDuration, @NonNull TimeUnit unit,
+            @NonNull ForkJoinPool pool
+    ) {
+        this.movingSpeed = movingSpeed;
+        this.minStopDurationNanos = unit.toNanos(minStopDuration);
+        this.pool = pool;
+    }
+
+    /**
+     * Analyze a track in parallel
+     *
+     * @param latitudes
+     * @param longitudes
+     * @param elapsedRealtimeNanos fix times, in ascending order
+     * @return
+     * @since 0.5.0
+     */
+    @WorkerThread
+    @NonNull
+    public TripStats analyze(
+            @NonNull double[] latitudes,
+            @NonNull double[] longitudes,
+            @NonNull long[] elapsedRealtimeNanos
+    ) {
+        return analyze(latitudes, longitudes, elapsedRealtimeNanos, true);
+    }
+
+    /**
+     * Analyze a track on the calling thread
+     *
+     * @param latitudes
+     * @param longitudes
+     * @param elapsedRealtimeNanos fix times, in ascending order
+     * @return
+     * @since 0.5.0
+     */
+    @WorkerThread
+    @NonNull
+    public TripStats analyzeSequential(
+            @NonNull double[] latitudes,
+            @NonNull double[] longitudes,
+            @NonNull long[] elapsedRealtimeNanos
+    ) {
+        return analyze(latitudes, longitudes, elapsedRealtimeNanos, false);
+    }
+
+    private static synchronized ForkJoinPool createPool() {
+        if (sharedPool == null) {
+            sharedPool = new ForkJoinPool();
+        }
+        return sharedPool;
+    }
+
+    /**
+     * Compute distance between two points, using equirectangular approximation
+     *
+     * @return distance in meters
+     * @since 0.5.0
+     */
+    public static double distance(
+            double fromLatitude, double fromLongitude,
+            double toLatitude, double toLongitude
+    ) {
+        double deltaLongitude = toLongitude - fromLongitude;
+        if (deltaLongitude > 180) {
+            deltaLongitude -= 360;
+        } else if (deltaLongitude < -180) {
+            deltaLongitude += 360;
+        }
+        double meanLatitude = Math.toRadians((fromLatitude + toLatitude) / 2);
+        double x = Math.toRadians(deltaLongitude) * Math.cos(meanLatitude);
+        double y = Math.toRadians(toLatitude - fromLatitude);
+        return Math.sqrt(x * x + y * y) * EARTH_RADIUS_IN_METERS;
+    }
+
+    private TripStats analyze(
+            double[] latitudes, double[] longitudes, long[] elapsedRealtimeNanos,
+            boolean parallel
+    ) {
+        int count = latitudes.length;
+        if (longitudes.length != count || elapsedRealtimeNanos.length != count) {
+            throw new IllegalArgumentException("Track Length Mismatch");
+        }
+        if (count < 2) {
+            return new TripStats(0, 0, 0, new int[0], new int[SPEED_BINS], SPEED_BIN_WIDTH);
+        }
+
+        // per segment speeds, filled by segment tasks
+        float[] speeds = new float[count - 1];
+        SegmentTask task = new SegmentTask(
+                latitudes, longitudes, elapsedRealtimeNanos, speeds, 0, count - 1, parallel
+        );
+        Partial partial = parallel ? pool.invoke(task) : task.compute();
+
+        int[] idleSegments = idleSegments(elapsedRealtimeNanos, speeds);
+        long duration = elapsedRealtimeNanos[count - 1] - elapsedRealtimeNanos[0];
+        return new TripStats(
+                partial.distance,
+                TimeUnit.NANOSECONDS.toMillis(duration),
+                TimeUnit.NANOSECONDS.toMillis(partial.movingTime),
+                idleSegments, partial.histogram, SPEED_BIN_WIDTH
+        );
+    }
+
+    /**
+     * Find idle runs lasting at least minimum stop duration
+     */
+    private int[] idleSegments(long[] elapsedRealtimeNanos, float[] speeds) {
+        int[] segments = new int[16];
+        int size = 0;
+        int start = -1;
+        for (int i = 0; i <= speeds.length; i++) {
+            boolean idle = i < speeds.length && speeds[i] < movingSpeed;
+            if (idle && start < 0) {
+                start = i;
+            } else if (!idle && start >= 0) {
+                // idle run covers fixes start..i
+                if (elapsedRealtimeNanos[i] - elapsedRealtimeNanos[start] >= minStopDurationNanos) {
+                    if (size + 2 > segments.length) {
+                        segments = Arrays.copyOf(segments, segments.length * 2);
+                    }
+                    segments[size++] = start;
+                    segments[size++] = i;
+                }
+                start = -1;
+            }
+        }
+        return Arrays.copyOf(segments, size);
+    }
+
+    /**
+     * Result of a range of segments, merged pairwise.
+     */
+    private static final class Partial {
+        double distance;
+        long movingTime;
+        final int[] histogram = new int[SPEED_BINS];
+
+        Partial merge(Partial other) {
+            distance += other.distance;
+            movingTime += other.movingTime;
+            for (int i = 0; i < SPEED_BINS; i++) {
+                histogram[i] += other.histogram[i];
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Compute segments {@code [from, to)}, segment i joining fix i and fix i + 1.
+     */
+    private final class SegmentTask extends RecursiveTask<Partial> {
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final long[] elapsedRealtimeNanos;
+        private final float[] speeds;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        SegmentTask(
+                double[] latitudes, double[] longitudes, long[] elapsedRealtimeNanos,
+                float[] speeds, int from, int to, boolean parallel
+        ) {
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.elapsedRealtimeNanos = elapsedRealtimeNanos;
+            this.speeds = speeds;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected Partial compute() {
+            // split large ranges, only when asked to run in parallel
+            if (parallel && to - from > SEQUENTIAL_THRESHOLD) {
+                int middle = (from + to) >>> 1;
+                SegmentTask left = new SegmentTask(
+                        latitudes, longitudes, elapsedRealtimeNanos, speeds, from, middle, true
+                );
+                SegmentTask right = new SegmentTask(
+                        latitudes, longitudes, elapsedRealtimeNanos, speeds, middle, to, true
+                );
+                left.fork();
+                return right.compute().merge(left.join());
+            }
+
+            Partial partial = new Partial();
+            for (int i = from; i < to; i++) {
+                double distance = distance(
+                        latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]
+                );
+                long elapsed = elapsedRealtimeNanos[i + 1] - elapsedRealtimeNanos[i];
+                float speed = elapsed > 0 ? (float) (distance * 1e9 / elapsed) : 0;
+                speeds[i] = speed;
+                partial.distance += distance;
+                if (speed >= movingSpeed) {
+                    partial.movingTime += elapsed;
+                }
+                if (elapsed > 0) {
+                    partial.histogram[Math.min((int) (speed / SPEED_BIN_WIDTH), SPEED_BINS - 1)]++;
+                }
+            }
+            return partial;
+        }
+    }
+}
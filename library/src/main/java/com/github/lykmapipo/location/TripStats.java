@@ -0,0 +1,96 @@
+package com.github.lykmapipo.location;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Summary of a recorded track, as computed by {@link TripAnalytics}.
+ *
+ * @author lally elias <lallyelias87@gmail.com>
+ * @version 0.1.0
+ * @since 0.5.0
+ */
+public class TripStats {
+    private final double distance;
+    private final long duration;
+    private final long movingTime;
+    private final int[] idleSegments;
+    private final int[] speedHistogram;
+    private final float speedBinWidth;
+
+    TripStats(
+            double distance, long duration, long movingTime,
+            @NonNull int[] idleSegments,
+            @NonNull int[] speedHistogram, float speedBinWidth
+    ) {
+        this.distance = distance;
+        this.duration = duration;
+        this.movingTime = movingTime;
+        this.idleSegments = idleSegments;
+        this.speedHistogram = speedHistogram;
+        this.speedBinWidth = speedBinWidth;
+    }
+
+    /**
+     * @return travelled distance in meters
+     */
+    public double getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return time between first and last fix in milliseconds
+     */
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * @return time spent moving in milliseconds
+     */
+    public long getMovingTime() {
+        return movingTime;
+    }
+
+    /**
+     * @return number of idle segments long enough to be stops
+     */
+    public int getStopCount() {
+        return idleSegments.length / 2;
+    }
+
+    /**
+     * Obtain idle segments as pairs of first and last fix index, i.e
+     * {@code [start0, end0, start1, end1, ...]}
+     *
+     * @return
+     */
+    @NonNull
+    public int[] getIdleSegments() {
+        return idleSegments.clone();
+    }
+
+    /**
+     * Obtain speed below which a given fraction of track segments fall
+     *
+     * @param percentile in range [0, 1], i.e 0.95
+     * @return speed in meters per second, upper bound of the matching histogram bin
+     */
+    public float getSpeedPercentile(double percentile) {
+        long total = 0;
+        for (int count : speedHistogram) {
+            total += count;
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(Math.max(0, Math.min(1, percentile)) * total);
+        long seen = 0;
+        for (int i = 0; i < speedHistogram.length; i++) {
+            seen += speedHistogram[i];
+            if (seen >= rank && seen > 0) {
+                return (i + 1) * speedBinWidth;
+            }
+        }
+        return speedHistogram.length * speedBinWidth;
+    }
+}
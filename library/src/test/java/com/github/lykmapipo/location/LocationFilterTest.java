@@ -0,0 +1,50 @@
+package com.github.lykmapipo.location;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LocationFilterTest {
+
+    @Test
+    public void testShouldFilterByAccuracy() {
+        LocationFilter filter = new LocationFilter.Builder().setMinAccuracy(20).build();
+        assertTrue("Should accept accurate fix", filter.acceptsAccuracy(5));
+        assertFalse("Should reject inaccurate fix", filter.acceptsAccuracy(50));
+    }
+
+    @Test
+    public void testShouldFilterByInterval() {
+        LocationFilter filter = new LocationFilter.Builder()
+                .setMinInterval(1, TimeUnit.MINUTES)
+                .build();
+        long from = TimeUnit.SECONDS.toNanos(10);
+        assertFalse("Should reject early fix", filter.acceptsInterval(from, from + TimeUnit.SECONDS.toNanos(30)));
+        assertTrue("Should accept late fix", filter.acceptsInterval(from, from + TimeUnit.SECONDS.toNanos(60)));
+    }
+
+    @Test
+    public void testShouldFilterByDisplacement() {
+        LocationFilter filter = new LocationFilter.Builder().setMinDisplacement(25).build();
+        double latitude = -6.8;
+        double cos = Math.cos(Math.toRadians(latitude));
+
+        // ~11m and ~33m north
+        assertFalse("Should reject near fix", filter.acceptsDisplacement(latitude, 39.2, cos, latitude + 0.0001, 39.2));
+        assertTrue("Should accept far fix", filter.acceptsDisplacement(latitude, 39.2, cos, latitude + 0.0003, 39.2));
+
+        // ~22m east across antimeridian
+        assertFalse("Should wrap antimeridian", filter.acceptsDisplacement(0, 179.9999, 1, 0, -179.9999));
+    }
+
+    @Test
+    public void testShouldAcceptEverythingByDefault() {
+        LocationFilter filter = new LocationFilter.Builder().build();
+        assertTrue(filter.acceptsAccuracy(1000));
+        assertTrue(filter.acceptsInterval(0, 0));
+        assertTrue(filter.acceptsDisplacement(0, 0, 1, 0, 0));
+    }
+}
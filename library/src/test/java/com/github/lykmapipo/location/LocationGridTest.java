@@ -0,0 +1,87 @@
+package com.github.lykmapipo.location;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class LocationGridTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testShouldCountFixesPerCell() {
+        LocationGrid grid = new LocationGrid(100);
+        grid.add(-6.8, 39.2, 0);
+        grid.add(-6.80001, 39.20001, SECOND);
+        grid.add(-6.9, 39.3, 2 * SECOND);
+
+        assertEquals("Should aggregate cells", 2, grid.size());
+        assertEquals("Should count fixes in same cell", 2, grid.getCount(-6.8, 39.2));
+        assertEquals("Should count fixes in other cell", 1, grid.getCount(-6.9, 39.3));
+        assertEquals("Should not count unvisited cell", 0, grid.getCount(10, 10));
+    }
+
+    @Test
+    public void testShouldAccumulateDwellTime() {
+        LocationGrid grid = new LocationGrid(100, 1, TimeUnit.MINUTES);
+        grid.add(-6.8, 39.2, 0);
+        grid.add(-6.8, 39.2, 10 * SECOND);
+        grid.add(-6.9, 39.3, 30 * SECOND);
+        // gap too large, not dwell time
+        grid.add(-6.9, 39.3, 300 * SECOND);
+
+        assertEquals("Should accumulate dwell time", 30000, grid.getDwellTime(-6.8, 39.2));
+        assertEquals("Should skip large gaps", 0, grid.getDwellTime(-6.9, 39.3));
+    }
+
+    @Test
+    public void testShouldMergeGrids() {
+        LocationGrid first = new LocationGrid(100);
+        first.add(-6.8, 39.2, 0);
+        first.add(-6.8, 39.2, 10 * SECOND);
+        LocationGrid second = new LocationGrid(100);
+        second.add(-6.8, 39.2, 0);
+        second.add(-6.9, 39.3, 20 * SECOND);
+
+        first.merge(second);
+
+        assertEquals("Should merge cells", 2, first.size());
+        assertEquals("Should merge counts", 3, first.getCount(-6.8, 39.2));
+        assertEquals("Should merge dwell time", 30000, first.getDwellTime(-6.8, 39.2));
+        assertEquals("Should merge new cells", 1, first.getCount(-6.9, 39.3));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectMergeOfDifferentCellSize() {
+        new LocationGrid(100).merge(new LocationGrid(50));
+    }
+
+    @Test
+    public void testShouldVisitCells() {
+        LocationGrid grid = new LocationGrid(100);
+        grid.add(-6.8, 39.2, 0);
+        final int[] visited = new int[1];
+        grid.forEach((latitude, longitude, count, dwellMillis) -> {
+            assertEquals("Should visit cell center", -6.8, latitude, 0.001);
+            assertEquals("Should visit cell center", 39.2, longitude, 0.001);
+            visited[0] += count;
+        });
+        assertEquals("Should visit all cells", 1, visited[0]);
+    }
+
+    @Test
+    public void testShouldKeepMemoryFlatOverManyFixes() {
+        LocationGrid grid = new LocationGrid(100);
+        for (int i = 0; i < 1000000; i++) {
+            // wander within ~1km square
+            double latitude = -6.8 + (i % 1000) * 0.00001;
+            double longitude = 39.2 + ((i / 1000) % 1000) * 0.00001;
+            grid.add(latitude, longitude, i * SECOND);
+        }
+
+        assertTrue("Should bound cells", grid.size() <= 144);
+        assertTrue("Should bound capacity", grid.capacity() <= 256);
+    }
+}
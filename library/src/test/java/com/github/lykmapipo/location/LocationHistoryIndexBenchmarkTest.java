@@ -0,0 +1,68 @@
+package com.github.lykmapipo.location;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static com.github.lykmapipo.location.LocationHistoryIndexTest.DAY_IN_SECONDS;
+import static com.github.lykmapipo.location.LocationHistoryIndexTest.SECOND;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Measure {@link LocationHistoryIndex} queries over a day of history, including a stay of hours
+ * in one place.
+ * <p>
+ * Opt-in, run with {@code ./gradlew :library:testDebugUnitTest -Pbenchmark=true}.
+ */
+public class LocationHistoryIndexBenchmarkTest {
+    private static final int QUERIES = 10000;
+    private static final double MAX_MILLIS_PER_QUERY = 1;
+
+    @Before
+    public void setup() {
+        assumeTrue("Should opt in to benchmarks", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void benchmarkQueries() {
+        LocationHistoryIndex index = new LocationHistoryIndex(200, DAY_IN_SECONDS);
+        LocationHistoryIndexTest.fillDayOfHistory(index, new Random(7));
+        long[] ids = new long[10];
+        long[] matches = new long[100];
+
+        // warm up
+        query(index, new Random(11), ids, matches);
+
+        // measure best of runs
+        long elapsed = Long.MAX_VALUE;
+        for (int run = 0; run < 5; run++) {
+            long start = System.nanoTime();
+            query(index, new Random(run), ids, matches);
+            elapsed = Math.min(elapsed, System.nanoTime() - start);
+        }
+
+        double perQuery = elapsed / 1e6 / QUERIES;
+        System.out.println(String.format(Locale.ENGLISH,
+                "LocationHistoryIndex over %d fixes: %.4f ms per nearest and radius query",
+                index.size(), perQuery));
+        assertTrue("Should query a day of history in under a millisecond",
+                perQuery < MAX_MILLIS_PER_QUERY);
+    }
+
+    /**
+     * Query around the city, for windows before, during and after the stay
+     */
+    private static void query(LocationHistoryIndex index, Random random, long[] ids, long[] matches) {
+        for (int q = 0; q < QUERIES; q++) {
+            double latitude = -6.9 + random.nextDouble() * 0.2;
+            double longitude = 39.1 + random.nextDouble() * 0.2;
+            long from = random.nextInt(DAY_IN_SECONDS) * SECOND;
+            long to = from + random.nextInt(DAY_IN_SECONDS / 4) * SECOND;
+            index.nearest(latitude, longitude, 2000, from, to, ids);
+            index.withinRadius(latitude, longitude, 250, from, to, matches);
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.github.lykmapipo.location;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class LocationHistoryIndexTest {
+    static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    static final int DAY_IN_SECONDS = 86400;
+
+    @Test
+    public void testShouldFindFixesWithinRadius() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 16);
+        long near = index.add(-6.8, 39.2, 0);
+        long nearby = index.add(-6.8003, 39.2003, SECOND);
+        index.add(-6.81, 39.21, 2 * SECOND);
+
+        long[] ids = new long[4];
+        int count = index.withinRadius(-6.8, 39.2, 100, 0, Long.MAX_VALUE, ids);
+        long[] found = Arrays.copyOf(ids, count);
+        Arrays.sort(found);
+
+        assertEquals("Should find fixes within radius", 2, count);
+        assertEquals("Should find fix at center", near, found[0]);
+        assertEquals("Should find nearby fix", nearby, found[1]);
+    }
+
+    @Test
+    public void testShouldFilterRadiusByTimeWindow() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 16);
+        index.add(-6.8, 39.2, 0);
+        long recent = index.add(-6.8, 39.2, 10 * SECOND);
+        index.add(-6.8, 39.2, 20 * SECOND);
+
+        long[] ids = new long[4];
+        int count = index.withinRadius(-6.8, 39.2, 50, 5 * SECOND, 15 * SECOND, ids);
+
+        assertEquals("Should filter by time window", 1, count);
+        assertEquals("Should find fix in time window", recent, ids[0]);
+    }
+
+    @Test
+    public void testShouldFindNearestFixesInOrder() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 16);
+        long far = index.add(-6.8, 39.23, 0);
+        long nearest = index.add(-6.8, 39.2001, SECOND);
+        long near = index.add(-6.8, 39.201, 2 * SECOND);
+        index.add(10, 10, 3 * SECOND);
+
+        long[] ids = new long[3];
+        int count = index.nearest(-6.8, 39.2, 5000, 0, Long.MAX_VALUE, ids);
+
+        assertEquals("Should find k nearest", 3, count);
+        assertEquals("Should order nearest first", nearest, ids[0]);
+        assertEquals("Should order by distance", near, ids[1]);
+        assertEquals("Should search outer rings", far, ids[2]);
+    }
+
+    @Test
+    public void testShouldReturnFewerNearestThanRequestedWhenSparse() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 16);
+        long only = index.add(-6.8, 39.2, 0);
+
+        long[] ids = new long[3];
+        int count = index.nearest(-6.9, 39.3, Double.MAX_VALUE, 0, Long.MAX_VALUE, ids);
+
+        assertEquals("Should find available fixes", 1, count);
+        assertEquals("Should find only fix", only, ids[0]);
+    }
+
+    @Test
+    public void testShouldNotFindNearestBeyondMaxDistance() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 16);
+        long near = index.add(-6.8, 39.201, 0);
+        index.add(-6.8, 39.23, SECOND);
+        index.add(10, 10, 2 * SECOND);
+
+        long[] ids = new long[3];
+        int count = index.nearest(-6.8, 39.2, 500, 0, Long.MAX_VALUE, ids);
+
+        assertEquals("Should only find fixes within max distance", 1, count);
+        assertEquals("Should find near fix", near, ids[0]);
+    }
+
+    @Test
+    public void testShouldFindEarlierFixesAfterLongStay() {
+        // move, then stay put for hours
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 4 * 3600);
+        long before = index.add(-6.8, 39.2, 0);
+        long moved = index.add(-6.8, 39.21, SECOND);
+        for (int i = 2; i < 4 * 3600; i++) {
+            index.add(-6.8, 39.2, i * SECOND);
+        }
+
+        long[] ids = new long[2];
+        assertEquals("Should skip newer fixes of stay",
+                1, index.nearest(-6.8, 39.2, 100, 0, SECOND, ids));
+        assertEquals("Should find earlier fix in same cell", before, ids[0]);
+        assertEquals("Should find fixes within window of stay",
+                2, index.withinRadius(-6.8, 39.2, 50, 100 * SECOND, 101 * SECOND, ids));
+        assertEquals("Should find first fix of window", 100, ids[0]);
+        assertEquals("Should find last fix of window", 101, ids[1]);
+        assertEquals("Should find earlier fix in other cell",
+                1, index.nearest(-6.8, 39.21, 100, 0, 2 * SECOND, ids));
+        assertEquals("Should find moved fix", moved, ids[0]);
+    }
+
+    @Test
+    public void testShouldForgetEvictedCellsWhenSearchingNearest() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 2);
+        index.add(10, 10, 0);
+        long live = index.add(-6.8, 39.2, SECOND);
+        long latest = index.add(-6.8, 39.2, 2 * SECOND);
+        index.evictBefore(2 * SECOND);
+
+        long[] ids = new long[2];
+        assertEquals("Should find live fixes only",
+                1, index.nearest(-6.9, 39.3, Double.MAX_VALUE, 0, Long.MAX_VALUE, ids));
+        assertEquals("Should find latest fix", latest, ids[0]);
+        assertFalse("Should evict older fix", index.contains(live));
+    }
+
+    @Test
+    public void testShouldEvictExpiredFixesInBulk() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 16);
+        long expired = index.add(-6.8, 39.2, 0);
+        index.add(-6.8, 39.2, SECOND);
+        long live = index.add(-6.8, 39.2, 2 * SECOND);
+
+        assertEquals("Should evict older fixes", 2, index.evictBefore(2 * SECOND));
+        assertEquals("Should keep newer fixes", 1, index.size());
+        assertFalse("Should forget evicted fix", index.contains(expired));
+
+        long[] ids = new long[4];
+        assertEquals("Should not find evicted fixes",
+                1, index.withinRadius(-6.8, 39.2, 50, 0, Long.MAX_VALUE, ids));
+        assertEquals("Should find live fix", live, ids[0]);
+    }
+
+    @Test
+    public void testShouldOverwriteOldestFixWhenFull() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 2);
+        long oldest = index.add(-6.8, 39.2, 0);
+        index.add(-6.9, 39.3, SECOND);
+        index.add(-6.8, 39.2, 2 * SECOND);
+
+        long[] ids = new long[4];
+        assertEquals("Should bound size", 2, index.size());
+        assertFalse("Should overwrite oldest fix", index.contains(oldest));
+        assertEquals("Should not find overwritten fix",
+                1, index.withinRadius(-6.8, 39.2, 50, 0, Long.MAX_VALUE, ids));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectEvictedFix() {
+        LocationHistoryIndex index = new LocationHistoryIndex(100, 1);
+        long evicted = index.add(-6.8, 39.2, 0);
+        index.add(-6.8, 39.2, SECOND);
+        index.getLatitude(evicted);
+    }
+
+    @Test
+    public void testShouldMatchBruteForceOverDayOfHistory() {
+        LocationHistoryIndex index = new LocationHistoryIndex(200, DAY_IN_SECONDS);
+        fillDayOfHistory(index, new Random(7));
+
+        Random random = new Random(11);
+        long[] ids = new long[10];
+        long[] matches = new long[DAY_IN_SECONDS];
+        double[] distances = new double[DAY_IN_SECONDS];
+        for (int q = 0; q < 200; q++) {
+            double queryLatitude = -6.9 + random.nextDouble() * 0.2;
+            double queryLongitude = 39.1 + random.nextDouble() * 0.2;
+            long from = random.nextInt(DAY_IN_SECONDS) * SECOND;
+            long to = from + random.nextInt(DAY_IN_SECONDS / 4) * SECOND;
+
+            int count = index.nearest(queryLatitude, queryLongitude, 2000, from, to, ids);
+            int within = index.withinRadius(queryLatitude, queryLongitude, 250, from, to, matches);
+
+            // compare with exhaustive scan
+            int candidates = 0;
+            int expectedWithin = 0;
+            for (int i = 0; i < DAY_IN_SECONDS; i++) {
+                long time = index.getElapsedRealtimeNanos(i);
+                if (time >= from && time <= to) {
+                    double distance = index.distanceTo(queryLatitude, queryLongitude, i);
+                    if (distance <= 2000) {
+                        distances[candidates++] = distance;
+                    }
+                    if (distance <= 250) {
+                        expectedWithin++;
+                    }
+                }
+            }
+            Arrays.sort(distances, 0, candidates);
+            assertEquals("Should find k nearest", Math.min(ids.length, candidates), count);
+            for (int i = 0; i < count; i++) {
+                assertEquals("Should match brute force nearest",
+                        distances[i], index.distanceTo(queryLatitude, queryLongitude, ids[i]), 1e-6);
+            }
+            assertEquals("Should match brute force radius", expectedWithin, within);
+        }
+    }
+
+    /**
+     * Index a day of 1 hz fixes random walking around a city, staying put for hours midday
+     */
+    static void fillDayOfHistory(LocationHistoryIndex index, Random random) {
+        double latitude = -6.8;
+        double longitude = 39.2;
+        for (int i = 0; i < DAY_IN_SECONDS; i++) {
+            boolean staying = i >= 9 * 3600 && i < 17 * 3600;
+            if (!staying) {
+                latitude = clamp(latitude + (random.nextDouble() - 0.5) * 0.0002, -6.9, -6.7);
+                longitude = clamp(longitude + (random.nextDouble() - 0.5) * 0.0002, 39.1, 39.3);
+            }
+            // jitter within a few meters while staying
+            double jitter = staying ? (random.nextDouble() - 0.5) * 0.00002 : 0;
+            index.add(latitude + jitter, longitude + jitter, i * SECOND);
+        }
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
@@ -0,0 +1,239 @@
+package com.github.lykmapipo.location;
+
+import android.content.Context;
+import android.location.Address;
+import android.location.Location;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationSettingsRequest;
+import com.google.android.gms.location.LocationSettingsResponse;
+import com.google.android.gms.location.SettingsClient;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Hammer {@link LocationProvider} static api from many threads against fake clients, to
+ * catch lost or duplicate fused registrations and report throughput and lock wait time.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowPreconditions.class})
+public class LocationProviderStressTest {
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 2000;
+
+    Context context;
+    FakeLocationClient locationClient;
+    FakeSettingsClient settingsClient;
+
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        locationClient = new FakeLocationClient(context);
+        settingsClient = new FakeSettingsClient(context);
+        installFakes();
+    }
+
+    @Test
+    public void testShouldNotLoseOrDuplicateRegistrationsUnderContention() throws Exception {
+        boolean contentionSupported = ThreadMetrics.enableContentionMonitoring();
+
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicLong lockWaitMillis = new AtomicLong();
+        AtomicInteger running = new AtomicInteger(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        LocationProvider.OnLocationUpdatesListener updatesListener = new NoopListener();
+        Location location = new Location("");
+
+        for (int t = 0; t < THREADS; t++) {
+            final long seed = t;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                    Random random = new Random(seed);
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int operation = random.nextInt(100);
+                        if (operation < 40) {
+                            LocationProvider.requestLocationUpdates(context, updatesListener);
+                        } else if (operation < 75) {
+                            LocationProvider.stopLocationUpdates();
+                        } else if (operation < 80) {
+                            LocationProvider.requestAddress(context, location, new NoopAddressListener());
+                        } else {
+                            clear();
+                        }
+                    }
+                } catch (Throwable error) {
+                    failure.compareAndSet(null, error);
+                } finally {
+                    if (contentionSupported) {
+                        lockWaitMillis.addAndGet(ThreadMetrics.getBlockedTime());
+                    }
+                    running.decrementAndGet();
+                }
+            }, "location-stress-" + t);
+            workers.add(worker);
+            worker.start();
+        }
+
+        // run settings callbacks on main looper while workers hammer the api
+        long startedAt = System.nanoTime();
+        start.countDown();
+        while (running.get() > 0) {
+            ShadowLooper.idleMainLooper();
+            Thread.yield();
+        }
+        for (Thread worker : workers) {
+            worker.join(TimeUnit.SECONDS.toMillis(30));
+        }
+        ShadowLooper.idleMainLooper();
+        long elapsed = System.nanoTime() - startedAt;
+
+        // stop and expect nothing left registered
+        LocationProvider.stopLocationUpdates();
+
+        // report throughput on opt-in, see -Pbenchmark=true
+        if (Boolean.getBoolean("benchmark")) {
+            int operations = THREADS * OPERATIONS_PER_THREAD;
+            System.out.println(String.format(Locale.ENGLISH,
+                    "LocationProvider stress: %d ops on %d threads in %d ms, %.0f ops/s, " +
+                            "lock wait %s, %d registrations, max %d concurrent",
+                    operations, THREADS, TimeUnit.NANOSECONDS.toMillis(elapsed),
+                    operations * 1e9 / elapsed,
+                    contentionSupported ? lockWaitMillis.get() + " ms" : "n/a",
+                    locationClient.requests.get(), locationClient.maxRegistered
+            ));
+        }
+
+        assertNull("Should not fail under contention", failure.get());
+        assertTrue("Should register location updates", locationClient.requests.get() > 0);
+        assertEquals("Should not lose registrations", 0, locationClient.registeredCount());
+        assertEquals("Should not duplicate registrations", 1, locationClient.maxRegistered);
+    }
+
+    @After
+    public void cleanup() {
+        LocationProvider.clear();
+    }
+
+    private void clear() {
+        // reset and reinstall fakes atomically with respect to the api
+        synchronized (LocationProvider.class) {
+            LocationProvider.clear();
+            installFakes();
+        }
+    }
+
+    private void installFakes() {
+        LocationProvider.setLocationClient(locationClient);
+        LocationProvider.setSettingsClient(settingsClient);
+    }
+
+    /**
+     * Fused client which, like the real one, keeps at most one registration per callback.
+     */
+    static class FakeLocationClient extends FusedLocationProviderClient {
+        final AtomicInteger requests = new AtomicInteger();
+        private final Set<LocationCallback> registered = new HashSet<>();
+        int maxRegistered;
+
+        FakeLocationClient(Context context) {
+            super(context);
+        }
+
+        @NonNull
+        @Override
+        public synchronized Task<Void> requestLocationUpdates(
+                LocationRequest request, LocationCallback callback, Looper looper
+        ) {
+            requests.incrementAndGet();
+            registered.add(callback);
+            maxRegistered = Math.max(maxRegistered, registered.size());
+            return Tasks.forResult(null);
+        }
+
+        @NonNull
+        @Override
+        public synchronized Task<Void> removeLocationUpdates(LocationCallback callback) {
+            registered.remove(callback);
+            return Tasks.forResult(null);
+        }
+
+        synchronized int registeredCount() {
+            return registered.size();
+        }
+    }
+
+    /**
+     * Settings client which always reports satisfied location settings.
+     */
+    static class FakeSettingsClient extends SettingsClient {
+        private final LocationSettingsResponse response = mock(LocationSettingsResponse.class);
+
+        FakeSettingsClient(Context context) {
+            super(context);
+        }
+
+        @NonNull
+        @Override
+        public Task<LocationSettingsResponse> checkLocationSettings(LocationSettingsRequest request) {
+            return Tasks.forResult(response);
+        }
+    }
+
+    static class NoopListener implements LocationProvider.OnLocationUpdatesListener {
+        @Override
+        public void onSuccess(LocationResult result) {
+
+        }
+
+        @Override
+        public void onFailure(Exception error) {
+
+        }
+    }
+
+    static class NoopAddressListener implements LocationProvider.OnAddressListener {
+        @Override
+        public void onSuccess(Address address) {
+
+        }
+
+        @Override
+        public void onFailure(Exception error) {
+
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.github.lykmapipo.location;
 import android.content.Context;
 import android.location.Address;
 import android.location.Location;
+import android.os.Looper;
+import android.os.SystemClock;
 
 import androidx.test.core.app.ApplicationProvider;
 
@@ -14,20 +16,36 @@ import com.google.android.gms.location.LocationSettingsRequest;
 import com.google.android.gms.location.LocationSettingsResponse;
 import com.google.android.gms.location.SettingsClient;
 import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.robolectric.RobolectricTestRunner;
 import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
 
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 @RunWith(RobolectricTestRunner.class)
 @Config(shadows = {ShadowPreconditions.class})
 public class LocationProviderTest {
+    private static final long MAX_ALLOCATION_NOISE = 128;
+
     Context context;
 
     @Before
@@ -87,6 +105,122 @@ public class LocationProviderTest {
         assertNotNull("Should create location callback", callback);
     }
 
+    @Test
+    public void testShouldDispatchLocationFixes() {
+        Location location = new Location("");
+        location.setLatitude(-6.8);
+        location.setLongitude(39.2);
+        location.setAccuracy(5f);
+        location.setSpeed(1.5f);
+        location.setBearing(90f);
+        location.setElapsedRealtimeNanos(1000L);
+        LocationResult result = LocationResult.create(Arrays.asList(location, location));
+
+        final double[] fix = new double[6];
+        final int[] count = new int[1];
+        LocationProvider.OnLocationUpdatesListener listener =
+                LocationProvider.createLocationUpdatesListener(new LocationProvider.OnLocationFixListener() {
+                    @Override
+                    public void onFix(double latitude, double longitude, float accuracy, float speed, float bearing, long elapsedRealtimeNanos) {
+                        fix[0] = latitude;
+                        fix[1] = longitude;
+                        fix[2] = accuracy;
+                        fix[3] = speed;
+                        fix[4] = bearing;
+                        fix[5] = elapsedRealtimeNanos;
+                        count[0]++;
+                    }
+
+                    @Override
+                    public void onFailure(Exception error) {
+
+                    }
+                });
+        listener.onSuccess(result);
+
+        assertEquals("Should dispatch each location", 2, count[0]);
+        assertEquals("Should dispatch latitude", -6.8, fix[0], 0);
+        assertEquals("Should dispatch longitude", 39.2, fix[1], 0);
+        assertEquals("Should dispatch accuracy", 5, fix[2], 0);
+        assertEquals("Should dispatch speed", 1.5, fix[3], 0);
+        assertEquals("Should dispatch bearing", 90, fix[4], 0);
+        assertEquals("Should dispatch elapsed realtime", 1000, fix[5], 0);
+    }
+
+    @Test
+    public void testShouldDispatchLocationFixesWithoutAllocation() {
+        Location location = new Location("");
+        location.setElapsedRealtimeNanos(SystemClock.elapsedRealtimeNanos());
+        LocationResult result = LocationResult.create(Arrays.asList(location));
+
+        final long[] sink = new long[1];
+        LocationProvider.OnLocationFixListener listener = new LocationProvider.OnLocationFixListener() {
+            @Override
+            public void onFix(double latitude, double longitude, float accuracy, float speed, float bearing, long elapsedRealtimeNanos) {
+                sink[0] += elapsedRealtimeNanos;
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+
+            }
+        };
+
+        // warm up
+        int fixes = 100000;
+        for (int i = 0; i < fixes; i++) {
+            LocationProvider.dispatchLocationFixes(result, listener);
+        }
+        ThreadMetrics.getAllocatedBytes();
+        ThreadMetrics.getAllocatedBytes();
+
+        // measure, allowing a few bytes of measurement noise
+        long before = ThreadMetrics.getAllocatedBytes();
+        assumeTrue("Should measure allocations", before >= 0);
+        for (int i = 0; i < fixes; i++) {
+            LocationProvider.dispatchLocationFixes(result, listener);
+        }
+        long allocated = ThreadMetrics.getAllocatedBytes() - before;
+
+        assertTrue("Should not allocate per fix", allocated <= MAX_ALLOCATION_NOISE);
+    }
+
+    @Test
+    public void testShouldFanOutFixesToEveryFixListener() {
+        SettingsClient settingsClient = mock(SettingsClient.class);
+        when(settingsClient.checkLocationSettings(any(LocationSettingsRequest.class)))
+                .thenReturn(Tasks.forResult(mock(LocationSettingsResponse.class)));
+        LocationProvider.setSettingsClient(settingsClient);
+        FusedLocationProviderClient locationClient = mock(FusedLocationProviderClient.class);
+        LocationProvider.setLocationClient(locationClient);
+
+        CountingFixListener first = new CountingFixListener();
+        CountingFixListener second = new CountingFixListener();
+        LocationProvider.requestLocationUpdates(context, first);
+        LocationProvider.requestLocationUpdates(context, second);
+        ShadowLooper.idleMainLooper();
+
+        // one shared request for both listeners
+        ArgumentCaptor<LocationCallback> callback = ArgumentCaptor.forClass(LocationCallback.class);
+        verify(locationClient, times(1)).requestLocationUpdates(
+                any(LocationRequest.class), callback.capture(), any(Looper.class)
+        );
+        callback.getValue().onLocationResult(LocationResult.create(Arrays.asList(new Location(""))));
+        assertEquals("Should dispatch to first listener", 1, first.count);
+        assertEquals("Should dispatch to second listener", 1, second.count);
+
+        // stop one, keep the other
+        LocationProvider.stopLocationUpdates(first);
+        callback.getValue().onLocationResult(LocationResult.create(Arrays.asList(new Location(""))));
+        verify(locationClient, never()).removeLocationUpdates(any(LocationCallback.class));
+        assertEquals("Should not dispatch to stopped listener", 1, first.count);
+        assertEquals("Should dispatch to remaining listener", 2, second.count);
+
+        // stop last, stop updates
+        LocationProvider.stopLocationUpdates(second);
+        verify(locationClient, times(1)).removeLocationUpdates(callback.getValue());
+    }
+
     @Test
     public void testShouldRequestLastKnownLocation() {
         LocationProvider.requestLastLocation(context, new LocationProvider.OnLastLocationListener() {
@@ -115,4 +249,17 @@ public class LocationProviderTest {
         LocationProvider.clear();
     }
 
+    static class CountingFixListener implements LocationProvider.OnLocationFixListener {
+        int count;
+
+        @Override
+        public void onFix(double latitude, double longitude, float accuracy, float speed, float bearing, long elapsedRealtimeNanos) {
+            count++;
+        }
+
+        @Override
+        public void onFailure(Exception error) {
+
+        }
+    }
 }
\ No newline at end of file
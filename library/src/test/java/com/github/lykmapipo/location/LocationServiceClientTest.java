@@ -0,0 +1,184 @@
+package com.github.lykmapipo.location;
+
+import android.app.Application;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.content.Intent;
+import android.content.ServiceConnection;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.robolectric.Shadows.shadowOf;
+
+@RunWith(RobolectricTestRunner.class)
+public class LocationServiceClientTest {
+    Context context;
+    ComponentName component;
+    Messenger service;
+    List<Message> sent;
+    List<Long> fixes;
+    List<Exception> failures;
+    LocationProvider.OnLocationFixListener listener;
+    LocationServiceClient client;
+
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+        component = new ComponentName(context, LocationService.class);
+
+        // fake service recording client messages
+        sent = new ArrayList<>();
+        service = new Messenger(new Handler(Looper.getMainLooper(), message -> {
+            sent.add(Message.obtain(message));
+            return true;
+        }));
+        shadowOf((Application) context).setComponentNameAndServiceForBindService(component, service.getBinder());
+
+        fixes = new ArrayList<>();
+        failures = new ArrayList<>();
+        listener = new LocationProvider.OnLocationFixListener() {
+            @Override
+            public void onFix(double latitude, double longitude, float accuracy, float speed, float bearing, long elapsedRealtimeNanos) {
+                fixes.add(elapsedRealtimeNanos);
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+                failures.add(error);
+            }
+        };
+        client = new LocationServiceClient(context, 5, 1, TimeUnit.SECONDS, listener);
+    }
+
+    @Test
+    public void testShouldAnnounceDemandOnConnect() {
+        assertTrue("Should bind service", client.connect());
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("Should subscribe", 1, sent.size());
+        Message subscribe = sent.get(0);
+        assertEquals("Should subscribe", LocationService.MSG_SUBSCRIBE, subscribe.what);
+        assertEquals("Should announce batch size", 5, subscribe.getData().getInt(LocationService.KEY_BATCH_SIZE));
+        assertEquals("Should announce max delay", 1000, subscribe.getData().getLong(LocationService.KEY_MAX_DELAY));
+        assertEquals("Should announce credit", 10, subscribe.getData().getInt(LocationService.KEY_CREDIT));
+    }
+
+    @Test
+    public void testShouldDeliverFixesAndGrantCreditBack() throws Exception {
+        client.connect();
+        ShadowLooper.idleMainLooper();
+        Messenger receiver = sent.get(0).replyTo;
+
+        Message message = Message.obtain(null, LocationService.MSG_FIXES);
+        Bundle data = message.getData();
+        data.putDoubleArray(LocationService.KEY_LATITUDES, new double[]{1, 2});
+        data.putDoubleArray(LocationService.KEY_LONGITUDES, new double[]{1, 2});
+        data.putFloatArray(LocationService.KEY_ACCURACIES, new float[2]);
+        data.putFloatArray(LocationService.KEY_SPEEDS, new float[2]);
+        data.putFloatArray(LocationService.KEY_BEARINGS, new float[2]);
+        data.putLongArray(LocationService.KEY_ELAPSED_REALTIME_NANOS, new long[]{10, 20});
+        receiver.send(message);
+        ShadowLooper.idleMainLooper();
+
+        assertArrayEquals("Should deliver fixes in order", new Long[]{10L, 20L}, fixes.toArray(new Long[0]));
+        Message request = sent.get(1);
+        assertEquals("Should grant credit back", LocationService.MSG_REQUEST, request.what);
+        assertEquals("Should grant consumed credit", 2, request.arg1);
+    }
+
+    @Test
+    public void testShouldDecodeFailures() throws Exception {
+        client.connect();
+        ShadowLooper.idleMainLooper();
+
+        Message message = Message.obtain(null, LocationService.MSG_FAILURE);
+        message.getData().putString(LocationService.KEY_ERROR, "Location Unavailable");
+        sent.get(0).replyTo.send(message);
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("Should deliver failure", 1, failures.size());
+        assertEquals("Should decode failure", "Location Unavailable", failures.get(0).getMessage());
+    }
+
+    @Test
+    public void testShouldResubscribeAfterServiceRestart() {
+        client.connect();
+        ShadowLooper.idleMainLooper();
+
+        client.onServiceDisconnected(component);
+        client.onServiceConnected(component, service.getBinder());
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("Should subscribe again", 2, sent.size());
+        assertEquals("Should subscribe again", LocationService.MSG_SUBSCRIBE, sent.get(1).what);
+        assertEquals("Should announce demand again", 10, sent.get(1).getData().getInt(LocationService.KEY_CREDIT));
+    }
+
+    @Test
+    public void testShouldUnsubscribeOnDisconnect() {
+        client.connect();
+        ShadowLooper.idleMainLooper();
+
+        client.disconnect();
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("Should unsubscribe", LocationService.MSG_UNSUBSCRIBE, sent.get(1).what);
+        assertTrue("Should unbind service",
+                shadowOf((Application) context).getUnboundServiceConnections().contains(client));
+    }
+
+    @Test
+    public void testShouldUnbindWhenBindingFails() {
+        UnbindableContext unbindable = new UnbindableContext(context);
+        LocationServiceClient unbound = new LocationServiceClient(unbindable, listener);
+
+        assertFalse("Should fail to bind", unbound.connect());
+        assertEquals("Should release failed binding", 1, unbindable.unbound.size());
+    }
+
+    /**
+     * Context whose service bindings always fail.
+     */
+    static class UnbindableContext extends ContextWrapper {
+        final List<ServiceConnection> unbound = new ArrayList<>();
+
+        UnbindableContext(Context base) {
+            super(base);
+        }
+
+        @Override
+        public Context getApplicationContext() {
+            return this;
+        }
+
+        @Override
+        public boolean bindService(Intent service, ServiceConnection connection, int flags) {
+            return false;
+        }
+
+        @Override
+        public void unbindService(ServiceConnection connection) {
+            unbound.add(connection);
+        }
+    }
+}
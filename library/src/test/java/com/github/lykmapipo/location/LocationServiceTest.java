@@ -0,0 +1,155 @@
+package com.github.lykmapipo.location;
+
+import android.content.Intent;
+import android.os.Binder;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.IBinder;
+import android.os.Looper;
+import android.os.Message;
+import android.os.Messenger;
+
+import androidx.lifecycle.Lifecycle;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowPreconditions.class})
+public class LocationServiceTest {
+    ServiceController<LocationService> controller;
+    LocationService service;
+    Messenger messenger;
+    Messenger receiver;
+    List<Bundle> received;
+
+    @Before
+    public void setup() {
+        controller = Robolectric.buildService(LocationService.class).create();
+        service = controller.get();
+        messenger = new Messenger(service.onBind(new Intent()));
+        received = new ArrayList<>();
+        receiver = new Messenger(new Handler(Looper.getMainLooper(), message -> {
+            if (message.what == LocationService.MSG_FIXES) {
+                received.add(new Bundle(message.getData()));
+            }
+            return true;
+        }));
+    }
+
+    @Test
+    public void testShouldSubscribeAndUnsubscribeClients() throws Exception {
+        subscribe(1, 10);
+        assertEquals("Should subscribe client", 1, service.getClientCount());
+
+        Message message = Message.obtain(null, LocationService.MSG_UNSUBSCRIBE);
+        message.replyTo = receiver;
+        messenger.send(message);
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("Should unsubscribe client", 0, service.getClientCount());
+    }
+
+    @Test
+    public void testShouldStreamBatchedFixes() throws Exception {
+        subscribe(2, 10);
+
+        service.dispatch(1, 1, 0, 0, 0, 1);
+        ShadowLooper.idleMainLooper();
+        assertEquals("Should wait for batch to fill", 0, received.size());
+
+        service.dispatch(2, 2, 0, 0, 0, 2);
+        ShadowLooper.idleMainLooper();
+        assertEquals("Should send full batch", 1, received.size());
+        assertArrayEquals(new long[]{1, 2}, received.get(0).getLongArray(LocationService.KEY_ELAPSED_REALTIME_NANOS));
+    }
+
+    @Test
+    public void testShouldRespectClientCredit() throws Exception {
+        subscribe(1, 2);
+
+        for (int i = 0; i < 5; i++) {
+            service.dispatch(i, i, 0, 0, 0, i);
+        }
+        ShadowLooper.idleMainLooper();
+        assertEquals("Should stop sending without credit", 2, received.size());
+
+        Message request = Message.obtain(null, LocationService.MSG_REQUEST, 1, 0);
+        request.replyTo = receiver;
+        messenger.send(request);
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("Should resume sending on credit", 3, received.size());
+        assertArrayEquals("Should send latest held fix", new long[]{4},
+                received.get(2).getLongArray(LocationService.KEY_ELAPSED_REALTIME_NANOS));
+    }
+
+    @Test
+    public void testShouldRemoveClientWhoseProcessDied() throws Exception {
+        DyingBinder binder = new DyingBinder();
+        Message message = Message.obtain(null, LocationService.MSG_SUBSCRIBE);
+        message.replyTo = new Messenger(binder);
+        message.getData().putInt(LocationService.KEY_CREDIT, 0);
+        messenger.send(message);
+        ShadowLooper.idleMainLooper();
+        assertEquals("Should subscribe client", 1, service.getClientCount());
+        assertEquals("Should start updates", Lifecycle.State.STARTED, service.getLifecycle().getCurrentState());
+
+        // no credit, so no send would notice the dead client
+        binder.die();
+        ShadowLooper.idleMainLooper();
+
+        assertEquals("Should remove dead client", 0, service.getClientCount());
+        assertEquals("Should stop updates", Lifecycle.State.CREATED, service.getLifecycle().getCurrentState());
+    }
+
+    @After
+    public void cleanup() {
+        controller.destroy();
+        LocationProvider.clear();
+    }
+
+    private void subscribe(int batchSize, int credit) throws Exception {
+        Message message = Message.obtain(null, LocationService.MSG_SUBSCRIBE);
+        message.replyTo = receiver;
+        message.getData().putInt(LocationService.KEY_BATCH_SIZE, batchSize);
+        message.getData().putInt(LocationService.KEY_CREDIT, credit);
+        messenger.send(message);
+        ShadowLooper.idleMainLooper();
+    }
+
+    /**
+     * Client binder whose process death can be simulated.
+     */
+    static class DyingBinder extends Binder {
+        IBinder.DeathRecipient recipient;
+
+        @Override
+        public void linkToDeath(IBinder.DeathRecipient recipient, int flags) {
+            this.recipient = recipient;
+        }
+
+        @Override
+        public boolean unlinkToDeath(IBinder.DeathRecipient recipient, int flags) {
+            this.recipient = null;
+            return true;
+        }
+
+        void die() {
+            recipient.binderDied();
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.github.lykmapipo.location;
+
+import android.content.Context;
+import android.location.Location;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.lifecycle.LifecycleRegistry;
+import androidx.test.core.app.ApplicationProvider;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationCallback;
+import com.google.android.gms.location.LocationRequest;
+import com.google.android.gms.location.LocationResult;
+import com.google.android.gms.location.LocationSettingsRequest;
+import com.google.android.gms.location.LocationSettingsResponse;
+import com.google.android.gms.location.SettingsClient;
+import com.google.android.gms.tasks.Tasks;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.verification.VerificationMode;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(RobolectricTestRunner.class)
+@Config(shadows = {ShadowPreconditions.class})
+public class LocationSubscriptionTest {
+    Context context;
+    FusedLocationProviderClient locationClient;
+
+    @Before
+    public void setup() {
+        context = ApplicationProvider.getApplicationContext();
+
+        SettingsClient settingsClient = mock(SettingsClient.class);
+        LocationSettingsResponse response = mock(LocationSettingsResponse.class);
+        when(settingsClient.checkLocationSettings(any(LocationSettingsRequest.class)))
+                .thenReturn(Tasks.forResult(response));
+        LocationProvider.setSettingsClient(settingsClient);
+
+        locationClient = mock(FusedLocationProviderClient.class);
+        LocationProvider.setLocationClient(locationClient);
+    }
+
+    @Test
+    public void testShouldResumeUpdatesOnceWhenOwnersStart() {
+        TestOwner first = new TestOwner();
+        TestOwner second = new TestOwner();
+        LocationProvider.requestLocationUpdates(context, first, new CountingListener());
+        LocationProvider.requestLocationUpdates(context, second, new CountingListener());
+        ShadowLooper.idleMainLooper();
+        verifyRequested(never());
+
+        first.handle(Lifecycle.Event.ON_START);
+        second.handle(Lifecycle.Event.ON_START);
+        ShadowLooper.idleMainLooper();
+
+        verifyRequested(times(1));
+    }
+
+    @Test
+    public void testShouldPauseUpdatesWhenNoOwnerIsStarted() {
+        TestOwner first = new TestOwner();
+        TestOwner second = new TestOwner();
+        LocationProvider.requestLocationUpdates(context, first, new CountingListener());
+        LocationProvider.requestLocationUpdates(context, second, new CountingListener());
+        first.handle(Lifecycle.Event.ON_START);
+        second.handle(Lifecycle.Event.ON_START);
+        ShadowLooper.idleMainLooper();
+
+        first.handle(Lifecycle.Event.ON_STOP);
+        verify(locationClient, never()).removeLocationUpdates(any(LocationCallback.class));
+
+        second.handle(Lifecycle.Event.ON_STOP);
+        verify(locationClient, times(1)).removeLocationUpdates(any(LocationCallback.class));
+
+        first.handle(Lifecycle.Event.ON_START);
+        ShadowLooper.idleMainLooper();
+        verifyRequested(times(2));
+    }
+
+    @Test
+    public void testShouldCancelSubscriptionWhenOwnerIsDestroyed() {
+        TestOwner owner = new TestOwner();
+        LocationSubscription subscription =
+                LocationProvider.requestLocationUpdates(context, owner, new CountingListener());
+        owner.handle(Lifecycle.Event.ON_START);
+        ShadowLooper.idleMainLooper();
+        assertTrue("Should start subscription", subscription.isStarted());
+
+        owner.handle(Lifecycle.Event.ON_STOP);
+        owner.handle(Lifecycle.Event.ON_DESTROY);
+
+        assertTrue("Should cancel subscription", subscription.isCancelled());
+        verify(locationClient, times(1)).removeLocationUpdates(any(LocationCallback.class));
+    }
+
+    @Test
+    public void testShouldRemoveObserverOnMainThreadWhenCancelledElsewhere() throws Exception {
+        TestOwner owner = new TestOwner();
+        LocationSubscription subscription =
+                LocationProvider.requestLocationUpdates(context, owner, new CountingListener());
+
+        Thread worker = new Thread(subscription::cancel);
+        worker.start();
+        worker.join();
+
+        assertTrue("Should cancel subscription", subscription.isCancelled());
+        assertEquals("Should defer observer removal to main thread",
+                1, owner.getLifecycle().getObserverCount());
+        ShadowLooper.idleMainLooper();
+        assertEquals("Should remove observer on main thread",
+                0, owner.getLifecycle().getObserverCount());
+    }
+
+    @Test
+    public void testShouldDispatchToStartedSubscriptionsOnly() {
+        TestOwner started = new TestOwner();
+        TestOwner stopped = new TestOwner();
+        CountingListener startedListener = new CountingListener();
+        CountingListener stoppedListener = new CountingListener();
+        LocationProvider.requestLocationUpdates(context, started, startedListener);
+        LocationSubscription subscription =
+                LocationProvider.requestLocationUpdates(context, stopped, stoppedListener);
+        started.handle(Lifecycle.Event.ON_START);
+        ShadowLooper.idleMainLooper();
+
+        LocationResult result = LocationResult.create(Collections.singletonList(new Location("")));
+        LocationProvider.createSubscriptionsCallback().onLocationResult(result);
+
+        assertEquals("Should dispatch to started subscription", 1, startedListener.count);
+        assertEquals("Should not dispatch to stopped subscription", 0, stoppedListener.count);
+        assertFalse("Should not start subscription", subscription.isStarted());
+    }
+
+    @Test
+    public void testShouldDispatchFilteredFixesPerSubscription() {
+        TestOwner owner = new TestOwner();
+        CountingListener everyFix = new CountingListener();
+        CountingListener displaced = new CountingListener();
+        LocationProvider.requestLocationUpdates(context, owner, everyFix);
+        LocationProvider.requestLocationUpdates(
+                context, owner, new LocationFilter.Builder().setMinDisplacement(25).build(), displaced
+        );
+        owner.handle(Lifecycle.Event.ON_START);
+        ShadowLooper.idleMainLooper();
+
+        LocationCallback callback = LocationProvider.createSubscriptionsCallback();
+        callback.onLocationResult(result(-6.8, 39.2));
+        callback.onLocationResult(result(-6.8001, 39.2));
+        callback.onLocationResult(result(-6.8003, 39.2));
+
+        assertEquals("Should dispatch every fix", 3, everyFix.count);
+        assertEquals("Should dispatch displaced fixes only", 2, displaced.count);
+    }
+
+    @Test
+    public void testShouldFilterEachLocationOfBatchedResult() {
+        TestOwner owner = new TestOwner();
+        LocationFilter filter = new LocationFilter.Builder().setMinDisplacement(25).build();
+        List<LocationResult> results = new ArrayList<>();
+        List<Double> fixes = new ArrayList<>();
+        LocationProvider.requestLocationUpdates(context, owner, filter, new LocationProvider.OnLocationUpdatesListener() {
+            @Override
+            public void onSuccess(LocationResult result) {
+                results.add(result);
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+
+            }
+        });
+        LocationProvider.requestLocationUpdates(context, owner, filter, new LocationProvider.OnLocationFixListener() {
+            @Override
+            public void onFix(double latitude, double longitude, float accuracy, float speed, float bearing, long elapsedRealtimeNanos) {
+                fixes.add(latitude);
+            }
+
+            @Override
+            public void onFailure(Exception error) {
+
+            }
+        });
+        owner.handle(Lifecycle.Event.ON_START);
+        ShadowLooper.idleMainLooper();
+
+        // second location is within displacement of the first
+        LocationProvider.createSubscriptionsCallback().onLocationResult(LocationResult.create(Arrays.asList(
+                location(-6.8, 39.2), location(-6.8001, 39.2), location(-6.8003, 39.2)
+        )));
+
+        assertEquals("Should deliver batched result once", 1, results.size());
+        List<Location> delivered = results.get(0).getLocations();
+        assertEquals("Should deliver accepted locations only", 2, delivered.size());
+        assertEquals(-6.8, delivered.get(0).getLatitude(), 0);
+        assertEquals(-6.8003, delivered.get(1).getLatitude(), 0);
+        assertEquals("Should deliver accepted fixes only", Arrays.asList(-6.8, -6.8003), fixes);
+    }
+
+    @After
+    public void cleanup() {
+        LocationProvider.clear();
+    }
+
+    private LocationResult result(double latitude, double longitude) {
+        return LocationResult.create(Collections.singletonList(location(latitude, longitude)));
+    }
+
+    private Location location(double latitude, double longitude) {
+        Location location = new Location("");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+
+    private void verifyRequested(VerificationMode mode) {
+        verify(locationClient, mode).requestLocationUpdates(
+                any(LocationRequest.class), any(LocationCallback.class), any(Looper.class)
+        );
+    }
+
+    static class CountingListener implements LocationProvider.OnLocationUpdatesListener {
+        int count;
+
+        @Override
+        public void onSuccess(LocationResult result) {
+            count++;
+        }
+
+        @Override
+        public void onFailure(Exception error) {
+
+        }
+    }
+
+    static class TestOwner implements LifecycleOwner {
+        private final LifecycleRegistry registry = new LifecycleRegistry(this);
+
+        TestOwner() {
+            registry.handleLifecycleEvent(Lifecycle.Event.ON_CREATE);
+        }
+
+        void handle(Lifecycle.Event event) {
+            registry.handleLifecycleEvent(event);
+        }
+
+        @NonNull
+        @Override
+        public LifecycleRegistry getLifecycle() {
+            return registry;
+        }
+    }
+}
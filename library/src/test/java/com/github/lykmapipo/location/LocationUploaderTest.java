@@ -0,0 +1,359 @@
+package com.github.lykmapipo.location;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class LocationUploaderTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public MockWebServer server = new MockWebServer();
+
+    File directory;
+    BlockingQueue<byte[]> received;
+    AtomicBoolean failing;
+    LocationUploader.Sink sink;
+    ScheduledExecutorService executor;
+    LocationUploader uploader;
+
+    @Before
+    public void setup() throws Exception {
+        directory = folder.newFolder("batches");
+        received = new LinkedBlockingQueue<>();
+        failing = new AtomicBoolean(false);
+        executor = new ScheduledThreadPoolExecutor(1);
+        sink = batch -> {
+            if (failing.get()) {
+                throw new Exception("Sink Down");
+            }
+            received.add(batch);
+        };
+    }
+
+    @Test
+    public void testShouldEncodeAndDecodeBatch() throws Exception {
+        LocationBatch batch = new LocationBatch(4);
+        batch.add(-6.8, 39.2, 5f, 1.5f, 90f, 1000L);
+        batch.add(-6.9, 39.3, 6f, 2.5f, 180f, 2000L);
+
+        LocationBatch decoded = LocationBatch.decode(batch.encode());
+
+        assertEquals("Should decode size", 2, decoded.size());
+        assertEquals("Should decode latitude", -6.9, decoded.getLatitude(1), 0);
+        assertEquals("Should decode longitude", 39.3, decoded.getLongitude(1), 0);
+        assertEquals("Should decode accuracy", 6f, decoded.getAccuracy(1), 0);
+        assertEquals("Should decode speed", 2.5f, decoded.getSpeed(1), 0);
+        assertEquals("Should decode bearing", 180f, decoded.getBearing(1), 0);
+        assertEquals("Should decode elapsed realtime", 2000L, decoded.getElapsedRealtimeNanos(1));
+    }
+
+    @Test
+    public void testShouldThinBatch() {
+        LocationBatch batch = new LocationBatch(4);
+        for (int i = 0; i < 4; i++) {
+            batch.add(i, i, 0, 0, 0, i);
+        }
+
+        batch.thin();
+
+        assertEquals("Should drop every other fix", 2, batch.size());
+        assertEquals("Should keep spacing", 0L, batch.getElapsedRealtimeNanos(0));
+        assertEquals("Should keep spacing", 2L, batch.getElapsedRealtimeNanos(1));
+        assertTrue("Should make room for next fix", batch.add(4, 4, 0, 0, 0, 4));
+    }
+
+    @Test
+    public void testShouldUploadBySize() throws Exception {
+        uploader = new LocationUploader.Builder(directory, sink)
+                .setBatchSize(3)
+                .setBatchDelay(1, TimeUnit.HOURS)
+                .build();
+
+        for (int i = 0; i < 3; i++) {
+            uploader.onFix(i, i, 0, 0, 0, i);
+        }
+
+        byte[] batch = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Should upload full batch", batch);
+        assertEquals("Should upload all fixes", 3, LocationBatch.decode(batch).size());
+    }
+
+    @Test
+    public void testShouldUploadByDelay() throws Exception {
+        uploader = new LocationUploader.Builder(directory, sink)
+                .setBatchSize(100)
+                .setBatchDelay(50, TimeUnit.MILLISECONDS)
+                .build();
+
+        uploader.onFix(1, 1, 0, 0, 0, 1);
+
+        byte[] batch = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Should upload partial batch after delay", batch);
+        assertEquals("Should upload buffered fixes", 1, LocationBatch.decode(batch).size());
+    }
+
+    @Test
+    public void testShouldRetryFailedUpload() throws Exception {
+        failing.set(true);
+        uploader = new LocationUploader.Builder(directory, sink)
+                .setBatchSize(1)
+                .setBackoff(20, 40, TimeUnit.MILLISECONDS)
+                .build();
+
+        uploader.onFix(1, 1, 0, 0, 0, 1);
+        assertNull("Should not upload while sink is down", received.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals("Should keep failed batch pending", 1, uploader.getPendingCount());
+
+        failing.set(false);
+
+        assertNotNull("Should upload after retry", received.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testShouldNotRetryAfterShutdown() throws Exception {
+        BlockingQueue<byte[]> attempts = new LinkedBlockingQueue<>();
+        LocationUploader.Sink down = batch -> {
+            attempts.add(batch);
+            throw new Exception("Sink Down");
+        };
+        uploader = new LocationUploader.Builder(directory, down)
+                .setBatchSize(1)
+                .setBackoff(200, 200, TimeUnit.MILLISECONDS)
+                .build();
+
+        uploader.onFix(1, 1, 0, 0, 0, 1);
+        assertNotNull("Should try upload", attempts.poll(5, TimeUnit.SECONDS));
+
+        // shutdown while retry is pending
+        uploader.shutdown();
+
+        assertNull("Should not send after shutdown", attempts.poll(500, TimeUnit.MILLISECONDS));
+        assertEquals("Should keep failed batch pending", 1, uploader.getPendingCount());
+    }
+
+    @Test
+    public void testShouldNotShutdownInjectedExecutor() throws Exception {
+        ((ScheduledThreadPoolExecutor) executor).setRemoveOnCancelPolicy(true);
+        failing.set(true);
+        uploader = new LocationUploader.Builder(directory, sink)
+                .setBatchSize(1)
+                .setBackoff(1, 1, TimeUnit.HOURS)
+                .setExecutor(executor)
+                .build();
+
+        uploader.onFix(1, 1, 0, 0, 0, 1);
+        awaitIdle();
+        uploader.shutdown();
+        awaitIdle();
+
+        assertFalse("Should leave injected executor running", executor.isShutdown());
+        assertTrue("Should cancel pending retry",
+                ((ScheduledThreadPoolExecutor) executor).getQueue().isEmpty());
+    }
+
+    @Test
+    public void testShouldComputeBackoff() throws Exception {
+        uploader = new LocationUploader.Builder(directory, sink)
+                .setBackoff(100, 1000, TimeUnit.MILLISECONDS)
+                .build();
+
+        assertEquals(100, uploader.backoff(1));
+        assertEquals(200, uploader.backoff(2));
+        assertEquals(800, uploader.backoff(4));
+        assertEquals(1000, uploader.backoff(5));
+        assertEquals(1000, uploader.backoff(100));
+    }
+
+    @Test
+    public void testShouldDropOldestWhenQueueIsFull() throws Exception {
+        failing.set(true);
+        uploader = new LocationUploader.Builder(directory, sink)
+                .setBatchSize(1)
+                .setQueueCapacity(2)
+                .setBackoff(1, 1, TimeUnit.HOURS)
+                .setBackpressure(LocationUploader.Backpressure.DROP_OLDEST)
+                .setExecutor(executor)
+                .build();
+
+        for (int i = 0; i < 5; i++) {
+            uploader.onFix(i, i, 0, 0, 0, i);
+            awaitIdle();
+        }
+        uploader.flush();
+        awaitIdle();
+
+        assertEquals("Should bound pending batches", 2, uploader.getPendingCount());
+        assertEquals("Should drop oldest batches", 3, uploader.getDroppedCount());
+
+        // resume with latest batches
+        failing.set(false);
+        uploader = new LocationUploader.Builder(directory, sink).build();
+        assertEquals(3L, LocationBatch.decode(received.poll(5, TimeUnit.SECONDS)).getElapsedRealtimeNanos(0));
+        assertEquals(4L, LocationBatch.decode(received.poll(5, TimeUnit.SECONDS)).getElapsedRealtimeNanos(0));
+    }
+
+    @Test
+    public void testShouldThinWhenQueueIsFull() throws Exception {
+        failing.set(true);
+        uploader = new LocationUploader.Builder(directory, sink)
+                .setBatchSize(4)
+                .setQueueCapacity(1)
+                .setBackoff(1, 1, TimeUnit.HOURS)
+                .setBackpressure(LocationUploader.Backpressure.THIN)
+                .setExecutor(executor)
+                .build();
+
+        for (int i = 0; i < 100; i++) {
+            uploader.onFix(i, i, 0, 0, 0, i);
+            awaitIdle();
+        }
+        uploader.flush();
+        awaitIdle();
+
+        assertEquals("Should bound pending batches", 1, uploader.getPendingCount());
+        assertEquals("Should not drop batches", 0, uploader.getDroppedCount());
+    }
+
+    @Test
+    public void testShouldDropRejectedBatch() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        LocationUploader.Sink rejecting = batch -> {
+            // reject first batch for good
+            if (attempts.getAndIncrement() == 0) {
+                throw new LocationUploader.RejectedBatchException("Upload Rejected: 400");
+            }
+            received.add(batch);
+        };
+        uploader = new LocationUploader.Builder(directory, rejecting)
+                .setBatchSize(1)
+                .setBackoff(1, 1, TimeUnit.HOURS)
+                .setExecutor(executor)
+                .build();
+
+        uploader.onFix(1, 1, 0, 0, 0, 1);
+        awaitIdle();
+        uploader.onFix(2, 2, 0, 0, 0, 2);
+        awaitIdle();
+
+        byte[] batch = received.poll(5, TimeUnit.SECONDS);
+        assertNotNull("Should upload batch after rejected one", batch);
+        assertEquals("Should upload next batch", 2L, LocationBatch.decode(batch).getElapsedRealtimeNanos(0));
+        assertEquals("Should count rejected batch as dropped", 1, uploader.getDroppedCount());
+        assertEquals("Should not keep rejected batch pending", 0, uploader.getPendingCount());
+    }
+
+    @Test
+    public void testShouldUploadToHttpSink() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(204));
+        URL url = server.url("/locations").url();
+        uploader = new LocationUploader.Builder(directory, new HttpLocationSink(url))
+                .setBatchSize(2)
+                .build();
+
+        uploader.onFix(1, 1, 0, 0, 0, 1);
+        uploader.onFix(2, 2, 0, 0, 0, 2);
+
+        RecordedRequest request = server.takeRequest(5, TimeUnit.SECONDS);
+        assertNotNull("Should post batch", request);
+        assertEquals("Should post batch", "POST", request.getMethod());
+        assertEquals("Should post gzip batch", "gzip", request.getHeader("Content-Encoding"));
+        byte[] batch = request.getBody().readByteArray();
+        assertEquals("Should post all fixes", 2, LocationBatch.decode(batch).size());
+    }
+
+    @Test
+    public void testShouldRetryHttpServerErrors() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(503));
+        URL url = server.url("/locations").url();
+
+        try {
+            new HttpLocationSink(url).send(new LocationBatch(1).encode());
+            fail("Should fail on http server errors");
+        } catch (IOException error) {
+            assertFalse("Should retry http server errors",
+                    error instanceof LocationUploader.RejectedBatchException);
+            assertTrue("Should fail on http server errors", error.getMessage().contains("503"));
+        }
+    }
+
+    @Test
+    public void testShouldRejectHttpClientErrors() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(413));
+        URL url = server.url("/locations").url();
+
+        try {
+            new HttpLocationSink(url).send(new LocationBatch(1).encode());
+            fail("Should reject http client errors");
+        } catch (LocationUploader.RejectedBatchException error) {
+            assertTrue("Should reject http client errors", error.getMessage().contains("413"));
+        }
+    }
+
+    @Test
+    public void testShouldRetryHttpAuthErrors() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(401));
+        URL url = server.url("/locations").url();
+
+        try {
+            new HttpLocationSink(url).send(new LocationBatch(1).encode());
+            fail("Should fail on http auth errors");
+        } catch (IOException error) {
+            assertFalse("Should retry http auth errors",
+                    error instanceof LocationUploader.RejectedBatchException);
+            assertTrue("Should fail on http auth errors", error.getMessage().contains("401"));
+        }
+    }
+
+    @Test
+    public void testShouldRejectByGivenPolicy() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+        URL url = server.url("/locations").url();
+        HttpLocationSink sink = new HttpLocationSink(url, 5000, code -> code == 404);
+
+        try {
+            sink.send(new LocationBatch(1).encode());
+            fail("Should reject by given policy");
+        } catch (LocationUploader.RejectedBatchException error) {
+            assertTrue("Should reject by given policy", error.getMessage().contains("404"));
+        }
+    }
+
+    @After
+    public void cleanup() throws Exception {
+        if (uploader != null) {
+            uploader.shutdown();
+        }
+        executor.shutdownNow();
+    }
+
+    private void awaitIdle() throws Exception {
+        executor.submit(() -> {
+        }).get(5, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,84 @@
+package com.github.lykmapipo.location;
+
+import java.lang.reflect.Method;
+
+/**
+ * Current thread jvm metrics for tests.
+ * <p>
+ * Looked up reflectively, since unit tests compile against android.jar which has no
+ * {@code java.lang.management}, while they run on a jvm which does.
+ */
+final class ThreadMetrics {
+    private static final Object THREADS = threads();
+    private static final Method ALLOCATED_BYTES =
+            method("com.sun.management.ThreadMXBean", "getThreadAllocatedBytes", long.class);
+    private static final Method CONTENTION_SUPPORTED =
+            method("java.lang.management.ThreadMXBean", "isThreadContentionMonitoringSupported");
+    private static final Method SET_CONTENTION_ENABLED =
+            method("java.lang.management.ThreadMXBean", "setThreadContentionMonitoringEnabled", boolean.class);
+    private static final Method THREAD_INFO =
+            method("java.lang.management.ThreadMXBean", "getThreadInfo", long.class);
+    private static final Method BLOCKED_TIME =
+            method("java.lang.management.ThreadInfo", "getBlockedTime");
+
+    private ThreadMetrics() {
+    }
+
+    /**
+     * Bytes allocated so far by current thread, or -1 if unsupported
+     */
+    static long getAllocatedBytes() {
+        try {
+            return (long) ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+        } catch (Exception error) {
+            return -1;
+        }
+    }
+
+    /**
+     * Start measuring time threads spend blocked on monitors
+     *
+     * @return false if unsupported
+     */
+    static boolean enableContentionMonitoring() {
+        try {
+            if (!(boolean) CONTENTION_SUPPORTED.invoke(THREADS)) {
+                return false;
+            }
+            SET_CONTENTION_ENABLED.invoke(THREADS, true);
+            return true;
+        } catch (Exception error) {
+            return false;
+        }
+    }
+
+    /**
+     * Milliseconds current thread spent blocked on monitors, or -1 if unsupported
+     */
+    static long getBlockedTime() {
+        try {
+            Object info = THREAD_INFO.invoke(THREADS, Thread.currentThread().getId());
+            return (long) BLOCKED_TIME.invoke(info);
+        } catch (Exception error) {
+            return -1;
+        }
+    }
+
+    private static Method method(String type, String name, Class<?>... parameters) {
+        try {
+            return Class.forName(type).getMethod(name, parameters);
+        } catch (Exception error) {
+            return null;
+        }
+    }
+
+    private static Object threads() {
+        try {
+            return Class.forName("java.lang.management.ManagementFactory")
+                    .getMethod("getThreadMXBean")
+                    .invoke(null);
+        } catch (Exception error) {
+            return null;
+        }
+    }
+}
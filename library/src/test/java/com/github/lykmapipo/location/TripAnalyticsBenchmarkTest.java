@@ -0,0 +1,101 @@
+package com.github.lykmapipo.location;
+
+import android.location.Location;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Compare {@link TripAnalytics} with a sequential {@link Location#distanceTo(Location)} loop.
+ * <p>
+ * Opt-in, run with {@code ./gradlew :library:testDebugUnitTest -Pbenchmark=true}.
+ */
+@RunWith(RobolectricTestRunner.class)
+public class TripAnalyticsBenchmarkTest {
+    private static final int FIXES = 500000;
+    private static final int RUNS = 5;
+    private static final float MOVING_SPEED = 0.5f;
+
+    @Before
+    public void setup() {
+        assumeTrue("Should opt in to benchmarks", Boolean.getBoolean("benchmark"));
+    }
+
+    @Test
+    public void benchmarkTripAnalytics() {
+        double[] latitudes = new double[FIXES];
+        double[] longitudes = new double[FIXES];
+        long[] times = new long[FIXES];
+        TripAnalyticsTest.track(latitudes, longitudes, times);
+        Location[] locations = new Location[FIXES];
+        for (int i = 0; i < FIXES; i++) {
+            locations[i] = new Location("");
+            locations[i].setLatitude(latitudes[i]);
+            locations[i].setLongitude(longitudes[i]);
+            locations[i].setElapsedRealtimeNanos(times[i]);
+        }
+        TripAnalytics analytics = new TripAnalytics();
+
+        // warm up
+        double[] baseline = distanceTo(locations);
+        TripStats sequential = analytics.analyzeSequential(latitudes, longitudes, times);
+        TripStats parallel = analytics.analyze(latitudes, longitudes, times);
+
+        // measure best of runs
+        long distanceToTime = Long.MAX_VALUE;
+        long sequentialTime = Long.MAX_VALUE;
+        long parallelTime = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            baseline = distanceTo(locations);
+            distanceToTime = Math.min(distanceToTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            sequential = analytics.analyzeSequential(latitudes, longitudes, times);
+            sequentialTime = Math.min(sequentialTime, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            parallel = analytics.analyze(latitudes, longitudes, times);
+            parallelTime = Math.min(parallelTime, System.nanoTime() - start);
+        }
+
+        System.out.println(String.format(Locale.ENGLISH,
+                "TripAnalytics over %d fixes: distanceTo loop %d ms, sequential %d ms, " +
+                        "parallel %d ms on %d cores",
+                FIXES,
+                TimeUnit.NANOSECONDS.toMillis(distanceToTime),
+                TimeUnit.NANOSECONDS.toMillis(sequentialTime),
+                TimeUnit.NANOSECONDS.toMillis(parallelTime),
+                Runtime.getRuntime().availableProcessors()
+        ));
+
+        assertEquals("Should agree with distanceTo", baseline[0], sequential.getDistance(), baseline[0] * 0.005);
+        assertEquals("Should agree with distanceTo", baseline[1], sequential.getMovingTime(), baseline[1] * 0.01);
+        assertEquals("Should match sequential", sequential.getDistance(), parallel.getDistance(), 1e-3);
+    }
+
+    /**
+     * Distance and moving time the way it is computed over stored locations
+     */
+    private static double[] distanceTo(Location[] locations) {
+        double distance = 0;
+        long movingTime = 0;
+        for (int i = 1; i < locations.length; i++) {
+            float segment = locations[i - 1].distanceTo(locations[i]);
+            long elapsed = locations[i].getElapsedRealtimeNanos() - locations[i - 1].getElapsedRealtimeNanos();
+            if (elapsed > 0 && segment * 1e9 / elapsed >= MOVING_SPEED) {
+                movingTime += elapsed;
+            }
+            distance += segment;
+        }
+        return new double[]{distance, TimeUnit.NANOSECONDS.toMillis(movingTime)};
+    }
+}
@@ -0,0 +1,96 @@
+package com.github.lykmapipo.location;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TripAnalyticsTest {
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testShouldComputeDistance() {
+        // one degree of latitude is ~111km
+        assertEquals(111195, TripAnalytics.distance(0, 0, 1, 0), 10);
+        // across antimeridian
+        assertEquals(22239, TripAnalytics.distance(0, 179.9, 0, -179.9), 10);
+    }
+
+    @Test
+    public void testShouldAnalyzeTrack() {
+        // drive north ~11m per second for 60s, stop 5 minutes, drive again 60s
+        int count = 60 + 300 + 60 + 1;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        long[] times = new long[count];
+        double latitude = -6.8;
+        for (int i = 0; i < count; i++) {
+            boolean moving = i <= 60 || i > 360;
+            if (i > 0 && moving) {
+                latitude += 0.0001;
+            }
+            latitudes[i] = latitude;
+            longitudes[i] = 39.2;
+            times[i] = i * SECOND;
+        }
+
+        TripStats stats = new TripAnalytics().analyze(latitudes, longitudes, times);
+
+        assertEquals("Should compute distance", 120 * 11.12, stats.getDistance(), 5);
+        assertEquals("Should compute duration", 420000, stats.getDuration());
+        assertEquals("Should compute moving time", 120000, stats.getMovingTime());
+        assertEquals("Should detect stops", 1, stats.getStopCount());
+        assertArrayEquals("Should detect idle segments", new int[]{60, 360}, stats.getIdleSegments());
+        assertEquals("Should compute median speed", 0.1, stats.getSpeedPercentile(0.5), 0.01);
+        assertEquals("Should compute 95th percentile speed", 11.2, stats.getSpeedPercentile(0.95), 0.01);
+    }
+
+    @Test
+    public void testShouldAnalyzeEmptyTrack() {
+        TripStats stats = new TripAnalytics().analyze(new double[1], new double[1], new long[1]);
+        assertEquals(0, stats.getDistance(), 0);
+        assertEquals(0, stats.getStopCount());
+        assertEquals(0, stats.getSpeedPercentile(0.5), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShouldRejectMismatchedTrack() {
+        new TripAnalytics().analyze(new double[2], new double[3], new long[2]);
+    }
+
+    @Test
+    public void testShouldMatchSequentialAnalytics() {
+        // long enough to split into several parallel ranges
+        int count = 100000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        long[] times = new long[count];
+        track(latitudes, longitudes, times);
+        TripAnalytics analytics = new TripAnalytics();
+
+        TripStats sequential = analytics.analyzeSequential(latitudes, longitudes, times);
+        TripStats parallel = analytics.analyze(latitudes, longitudes, times);
+
+        assertEquals("Should match distance", sequential.getDistance(), parallel.getDistance(), 1e-3);
+        assertEquals("Should match moving time", sequential.getMovingTime(), parallel.getMovingTime());
+        assertEquals("Should match stops", sequential.getStopCount(), parallel.getStopCount());
+        assertArrayEquals("Should match idle segments", sequential.getIdleSegments(), parallel.getIdleSegments());
+        assertEquals("Should match percentiles", sequential.getSpeedPercentile(0.9), parallel.getSpeedPercentile(0.9), 0);
+    }
+
+    /**
+     * Random drive, idle one thousand fixes in every four thousand
+     */
+    static void track(double[] latitudes, double[] longitudes, long[] times) {
+        Random random = new Random(42);
+        for (int i = 1; i < latitudes.length; i++) {
+            boolean idle = (i / 1000) % 4 == 0;
+            latitudes[i] = latitudes[i - 1] + (idle ? 0 : random.nextDouble() * 0.0002);
+            longitudes[i] = longitudes[i - 1] + (idle ? 0 : random.nextDouble() * 0.0002);
+            times[i] = times[i - 1] + SECOND;
+        }
+    }
+}